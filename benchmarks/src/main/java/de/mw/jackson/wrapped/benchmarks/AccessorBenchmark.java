@@ -0,0 +1,66 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getter dispatch cost of wrapped properties compared to flat properties,
+ * with reflection and with the {@code LambdaMetafactory} generated accessors of {@link BlackbirdModule}.
+ *
+ * The difference between {@code flat} and {@code wrapped} should be the same with and without Blackbird.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessorBenchmark {
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    private ObjectWriter writer;
+    private Beans.GettersFlat flat;
+    private Beans.GettersWrapped wrapped;
+
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        if (blackbird) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        writer = mapper.writer();
+        flat = new Beans.GettersFlat();
+        wrapped = new Beans.GettersWrapped();
+    }
+
+    @Benchmark
+    public void flat() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, flat);
+    }
+
+    @Benchmark
+    public void wrapped() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, wrapped);
+    }
+
+}
@@ -0,0 +1,344 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.annotation.JsonView;
+
+import de.mw.jackson.wrapped.JsonWrapped;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Beans used by the benchmarks.
+ *
+ * All variants serialize the same data, either flat ({"age":..,"first":..,"last":..,"street":..,"city":..})
+ * or wrapped ({"age":..,"name":{"first":..,"last":..},"address":{"street":..,"city":..}}).
+ */
+public final class Beans {
+
+    public static interface PublicView {}
+    public static interface InternalView extends PublicView {}
+
+    private Beans() {}
+
+    /**
+     * Baseline: flat bean without any wrapping.
+     */
+    public static class Flat {
+        public int age = 18;
+        public String first = "Joey";
+        public String last = "Sixpack";
+        public String street = "Sunset boulevard";
+        public String city = "Heaven";
+    }
+
+    /**
+     * Hand-written nested DTOs producing the wrapped layout without the module.
+     */
+    public static class NestedDto {
+        public int age;
+        public NameDto name;
+        public AddressDto address;
+
+        public static NestedDto from(Flat flat) {
+            NestedDto dto = new NestedDto();
+            dto.age = flat.age;
+            dto.name = new NameDto();
+            dto.name.first = flat.first;
+            dto.name.last = flat.last;
+            dto.address = new AddressDto();
+            dto.address.street = flat.street;
+            dto.address.city = flat.city;
+            return dto;
+        }
+    }
+
+    public static class NameDto {
+        public String first;
+        public String last;
+    }
+
+    public static class AddressDto {
+        public String street;
+        public String city;
+    }
+
+    /**
+     * Nested DTOs flattened by {@link JsonUnwrapped}, the opposite direction of {@link JsonWrapped}.
+     */
+    public static class Unwrapped {
+        public int age = 18;
+        @JsonUnwrapped
+        public NameDto name = NestedDto.from(new Flat()).name;
+        @JsonUnwrapped
+        public AddressDto address = NestedDto.from(new Flat()).address;
+    }
+
+    /**
+     * {@link JsonWrapped} on property level.
+     */
+    public static class PropertyLevel {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("address")
+        public String city = "Heaven";
+    }
+
+    /**
+     * {@link JsonWrapped} on type level, only one group can be declared this way.
+     */
+    @JsonWrapped(value = "name", properties = {"first", "last"})
+    public static class TypeLevel extends Flat {
+    }
+
+    /**
+     * Flat bean with views, baseline for {@link WithViews}.
+     */
+    @JsonView(PublicView.class)
+    public static class FlatWithViews {
+        public int age = 18;
+        public String first = "Joey";
+        public String last = "Sixpack";
+        @JsonView(InternalView.class)
+        public String street = "Sunset boulevard";
+        @JsonView(InternalView.class)
+        public String city = "Heaven";
+    }
+
+    /**
+     * {@link JsonWrapped} combined with {@link JsonView}.
+     */
+    @JsonView(PublicView.class)
+    public static class WithViews {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonView(InternalView.class)
+        @JsonWrapped("address")
+        public String street = "Sunset boulevard";
+        @JsonView(InternalView.class)
+        @JsonWrapped("address")
+        public String city = "Heaven";
+    }
+
+    /**
+     * Flat bean with filter, baseline for {@link WithFilter}.
+     */
+    @JsonFilter("benchmark")
+    public static class FlatWithFilter extends Flat {
+    }
+
+    /**
+     * {@link JsonWrapped} combined with {@link JsonFilter}.
+     */
+    @JsonFilter("benchmark")
+    public static class WithFilter extends PropertyLevel {
+    }
+
+    /**
+     * Flat bean with any getter, baseline for {@link WithAnyGetter}.
+     */
+    public static class FlatWithAnyGetter {
+        public int age = 18;
+        private final Map<String, Object> any = new LinkedHashMap<String, Object>();
+
+        public FlatWithAnyGetter() {
+            any.put("first", "Joey");
+            any.put("last", "Sixpack");
+        }
+
+        @JsonAnyGetter
+        public Map<String, Object> getAny() {
+            return any;
+        }
+    }
+
+    /**
+     * {@link JsonWrapped} on an any getter.
+     */
+    public static class WithAnyGetter extends FlatWithAnyGetter {
+
+        @Override
+        @JsonAnyGetter
+        @JsonWrapped("name")
+        public Map<String, Object> getAny() {
+            return super.getAny();
+        }
+    }
+
+    /**
+     * {@link JsonWrapped} with paths, producing {"age":..,"person":{"name":{..},"address":{..}}}.
+     */
+    public static class Paths {
+        public int age = 18;
+        @JsonWrapped("person.name")
+        public String first = "Joey";
+        @JsonWrapped("person.name")
+        public String last = "Sixpack";
+        @JsonWrapped("person.address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("person.address")
+        public String city = "Heaven";
+    }
+
+    /**
+     * Line item with a wrapped group of reference data repeated across many items.
+     */
+    public static class LineItem {
+        public int quantity = 3;
+        public long amount = 1999;
+        @JsonWrapped("currency")
+        public String code;
+        @JsonWrapped("currency")
+        public String symbol;
+        @JsonWrapped("currency")
+        public String name;
+        @JsonWrapped("currency")
+        public int scale = 2;
+
+        public LineItem(String code, String symbol, String name) {
+            this.code = code;
+            this.symbol = symbol;
+            this.name = name;
+        }
+    }
+
+    /**
+     * {@link LineItem} with the virtual object cached by the values of the wrapped properties.
+     */
+    public static class CachedLineItem {
+        public int quantity = 3;
+        public long amount = 1999;
+        @JsonWrapped(value = "currency", cache = JsonWrapped.Cache.VALUES)
+        public String code;
+        @JsonWrapped("currency")
+        public String symbol;
+        @JsonWrapped("currency")
+        public String name;
+        @JsonWrapped("currency")
+        public int scale = 2;
+
+        public CachedLineItem(String code, String symbol, String name) {
+            this.code = code;
+            this.symbol = symbol;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Hand-written holder DTOs producing the same layout as {@link Paths}.
+     */
+    public static class PathsDto {
+        public int age;
+        public PersonDto person;
+
+        public static PathsDto from(Flat flat) {
+            NestedDto nested = NestedDto.from(flat);
+            PathsDto dto = new PathsDto();
+            dto.age = nested.age;
+            dto.person = new PersonDto();
+            dto.person.name = nested.name;
+            dto.person.address = nested.address;
+            return dto;
+        }
+    }
+
+    public static class PersonDto {
+        public NameDto name;
+        public AddressDto address;
+    }
+
+    /**
+     * Flat bean with getters, baseline for {@link GettersWrapped} (Blackbird optimizes getters only).
+     */
+    public static class GettersFlat {
+        private final Flat flat = new Flat();
+
+        public int getAge() { return flat.age; }
+        public String getFirst() { return flat.first; }
+        public String getLast() { return flat.last; }
+        public String getStreet() { return flat.street; }
+        public String getCity() { return flat.city; }
+    }
+
+    /**
+     * {@link JsonWrapped} on getters.
+     */
+    public static class GettersWrapped {
+        private final Flat flat = new Flat();
+
+        public int getAge() { return flat.age; }
+        @JsonWrapped("name") public String getFirst() { return flat.first; }
+        @JsonWrapped("name") public String getLast() { return flat.last; }
+        @JsonWrapped("address") public String getStreet() { return flat.street; }
+        @JsonWrapped("address") public String getCity() { return flat.city; }
+    }
+
+    /**
+     * Baseline for {@link NestedWrapped}: flat beans nested inside each other.
+     */
+    public static class NestedFlat {
+        public int id = 1;
+        public Flat person = new Flat();
+        public Flat partner = new Flat();
+    }
+
+    /**
+     * Wrapped beans nested inside a wrapped bean.
+     */
+    public static class NestedWrapped {
+        public int id = 1;
+        @JsonWrapped("people")
+        public PropertyLevel person = new PropertyLevel();
+        @JsonWrapped("people")
+        public PropertyLevel partner = new PropertyLevel();
+    }
+
+    /**
+     * Flat bean with sixteen properties, baseline for {@link ManyWrappers}.
+     */
+    public static class ManyFlat {
+        public int a1 = 1, a2 = 2, b1 = 1, b2 = 2, c1 = 1, c2 = 2, d1 = 1, d2 = 2;
+        public int e1 = 1, e2 = 2, f1 = 1, f2 = 2, g1 = 1, g2 = 2, h1 = 1, h2 = 2;
+    }
+
+    /**
+     * Eight virtual properties with two properties each.
+     */
+    public static class ManyWrappers {
+        @JsonWrapped("a") public int a1 = 1, a2 = 2;
+        @JsonWrapped("b") public int b1 = 1, b2 = 2;
+        @JsonWrapped("c") public int c1 = 1, c2 = 2;
+        @JsonWrapped("d") public int d1 = 1, d2 = 2;
+        @JsonWrapped("e") public int e1 = 1, e2 = 2;
+        @JsonWrapped("f") public int f1 = 1, f2 = 2;
+        @JsonWrapped("g") public int g1 = 1, g2 = 2;
+        @JsonWrapped("h") public int h1 = 1, h2 = 2;
+    }
+
+    /**
+     * Page of flat beans, baseline for {@link WrappedPage}.
+     */
+    public static class FlatPage {
+        public List<Flat> items = new ArrayList<Flat>();
+    }
+
+    /**
+     * Page of wrapped beans.
+     */
+    public static class WrappedPage {
+        public List<PropertyLevel> items = new ArrayList<PropertyLevel>();
+    }
+
+}
@@ -0,0 +1,87 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of pages of wrapped beans compared to pages of flat beans in JSON, CBOR and Smile.
+ *
+ * The payload sizes of both pages are printed by the setup, virtual objects are written with definite length in CBOR
+ * and their names are back-referenced in Smile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatsBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param("500")
+    public int elements;
+
+    private ObjectWriter writer;
+
+    private Beans.FlatPage flatPage;
+    private Beans.WrappedPage wrappedPage;
+
+    @Setup
+    public void setup() throws IOException {
+        writer = new ObjectMapper(factory(format)).registerModule(new JsonWrappedModule()).writer();
+
+        flatPage = new Beans.FlatPage();
+        wrappedPage = new Beans.WrappedPage();
+        for (int i = 0; i < elements; i++) {
+            flatPage.items.add(new Beans.Flat());
+            wrappedPage.items.add(new Beans.PropertyLevel());
+        }
+
+        System.out.println(format + " payload: flat page " + writer.writeValueAsBytes(flatPage).length
+                + " bytes, wrapped page " + writer.writeValueAsBytes(wrappedPage).length + " bytes");
+    }
+
+    @Benchmark
+    public void flatPage() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, flatPage);
+    }
+
+    @Benchmark
+    public void wrappedPage() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, wrappedPage);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+        case "cbor":
+            return new CBORFactory();
+        case "smile":
+            return new SmileFactory();
+        default:
+            return new JsonFactory();
+        }
+    }
+
+}
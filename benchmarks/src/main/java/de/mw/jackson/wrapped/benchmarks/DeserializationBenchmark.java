@@ -0,0 +1,82 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading wrapped JSON into a bean using {@link de.mw.jackson.wrapped.JsonWrapped},
+ * compared to reading it into hand-written nested DTOs (and mapping them to the flat bean)
+ * and to reading flat JSON into the flat bean.
+ *
+ * Run with {@code java -jar target/benchmarks.jar DeserializationBenchmark -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeserializationBenchmark {
+
+    private ObjectReader flatReader;
+    private ObjectReader nestedDtoReader;
+    private ObjectReader wrappingReader;
+
+    private byte[] flatJson;
+    private byte[] wrappedJson;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper plain = new ObjectMapper();
+        flatReader = plain.readerFor(Beans.Flat.class);
+        nestedDtoReader = plain.readerFor(Beans.NestedDto.class);
+        wrappingReader = new ObjectMapper().registerModule(new JsonWrappedModule()).readerFor(Beans.PropertyLevel.class);
+
+        flatJson = plain.writeValueAsBytes(new Beans.Flat());
+        wrappedJson = plain.writeValueAsBytes(Beans.NestedDto.from(new Beans.Flat()));
+    }
+
+    @Benchmark
+    public Object flat() throws IOException {
+        return flatReader.readValue(flatJson);
+    }
+
+    @Benchmark
+    public Object handWrittenDto() throws IOException {
+        return nestedDtoReader.readValue(wrappedJson);
+    }
+
+    @Benchmark
+    public Object handWrittenDto_mappedToFlat() throws IOException {
+        Beans.NestedDto dto = nestedDtoReader.readValue(wrappedJson);
+        Beans.Flat flat = new Beans.Flat();
+        flat.age = dto.age;
+        flat.first = dto.name.first;
+        flat.last = dto.name.last;
+        flat.street = dto.address.street;
+        flat.city = dto.address.city;
+        return flat;
+    }
+
+    @Benchmark
+    public Object jsonWrapped() throws IOException {
+        return wrappingReader.readValue(wrappedJson);
+    }
+
+}
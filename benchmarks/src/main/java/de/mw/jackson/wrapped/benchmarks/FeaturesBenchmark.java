@@ -0,0 +1,118 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JsonWrappedModule} combined with views, filters and any getters,
+ * each compared to the same flat bean serialized without the module.
+ *
+ * Run with {@code java -jar target/benchmarks.jar FeaturesBenchmark -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeaturesBenchmark {
+
+    private ObjectWriter plainPublicViewWriter;
+    private ObjectWriter plainInternalViewWriter;
+    private ObjectWriter plainFilterWriter;
+    private ObjectWriter plainWriter;
+    private ObjectWriter wrappingPublicViewWriter;
+    private ObjectWriter wrappingInternalViewWriter;
+    private ObjectWriter wrappingFilterWriter;
+    private ObjectWriter wrappingWriter;
+
+    private Beans.FlatWithViews flatWithViews;
+    private Beans.WithViews withViews;
+    private Beans.FlatWithFilter flatWithFilter;
+    private Beans.WithFilter withFilter;
+    private Beans.FlatWithAnyGetter flatWithAnyGetter;
+    private Beans.WithAnyGetter withAnyGetter;
+
+    @Setup
+    public void setup() {
+        SimpleFilterProvider filters = new SimpleFilterProvider().addFilter("benchmark", SimpleBeanPropertyFilter.serializeAllExcept("age"));
+
+        ObjectMapper plain = new ObjectMapper();
+        plainWriter = plain.writer();
+        plainPublicViewWriter = plain.writerWithView(Beans.PublicView.class);
+        plainInternalViewWriter = plain.writerWithView(Beans.InternalView.class);
+        plainFilterWriter = plain.writer(filters);
+
+        ObjectMapper wrapping = new ObjectMapper().registerModule(new JsonWrappedModule());
+        wrappingWriter = wrapping.writer();
+        wrappingPublicViewWriter = wrapping.writerWithView(Beans.PublicView.class);
+        wrappingInternalViewWriter = wrapping.writerWithView(Beans.InternalView.class);
+        wrappingFilterWriter = wrapping.writer(filters);
+
+        flatWithViews = new Beans.FlatWithViews();
+        withViews = new Beans.WithViews();
+        flatWithFilter = new Beans.FlatWithFilter();
+        withFilter = new Beans.WithFilter();
+        flatWithAnyGetter = new Beans.FlatWithAnyGetter();
+        withAnyGetter = new Beans.WithAnyGetter();
+    }
+
+    @Benchmark
+    public void views_flat_publicView() throws IOException {
+        plainPublicViewWriter.writeValue(NullOutputStream.INSTANCE, flatWithViews);
+    }
+
+    @Benchmark
+    public void views_flat_internalView() throws IOException {
+        plainInternalViewWriter.writeValue(NullOutputStream.INSTANCE, flatWithViews);
+    }
+
+    @Benchmark
+    public void views_jsonWrapped_publicView() throws IOException {
+        wrappingPublicViewWriter.writeValue(NullOutputStream.INSTANCE, withViews);
+    }
+
+    @Benchmark
+    public void views_jsonWrapped_internalView() throws IOException {
+        wrappingInternalViewWriter.writeValue(NullOutputStream.INSTANCE, withViews);
+    }
+
+    @Benchmark
+    public void filter_flat() throws IOException {
+        plainFilterWriter.writeValue(NullOutputStream.INSTANCE, flatWithFilter);
+    }
+
+    @Benchmark
+    public void filter_jsonWrapped() throws IOException {
+        wrappingFilterWriter.writeValue(NullOutputStream.INSTANCE, withFilter);
+    }
+
+    @Benchmark
+    public void anyGetter_flat() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, flatWithAnyGetter);
+    }
+
+    @Benchmark
+    public void anyGetter_jsonWrapped() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, withAnyGetter);
+    }
+
+}
@@ -0,0 +1,73 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import de.mw.jackson.wrapped.JsonWrapped;
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of line items with a wrapped currency (three distinct currencies),
+ * written as usual and cached by the values of the wrapped properties ({@link JsonWrapped#cache()}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FragmentCacheBenchmark {
+
+    private static final String[][] CURRENCIES = {
+        { "EUR", "€", "Euro" }, { "USD", "$", "US Dollar" }, { "GBP", "£", "Pound Sterling" }
+    };
+
+    @Param("500")
+    public int elements;
+
+    private ObjectWriter writer;
+
+    private List<Beans.LineItem> items;
+    private List<Beans.CachedLineItem> cachedItems;
+
+    @Setup
+    public void setup() {
+        writer = new ObjectMapper().registerModule(new JsonWrappedModule()).writer();
+
+        items = new ArrayList<Beans.LineItem>();
+        cachedItems = new ArrayList<Beans.CachedLineItem>();
+        for (int i = 0; i < elements; i++) {
+            String[] currency = CURRENCIES[i % CURRENCIES.length];
+            items.add(new Beans.LineItem(currency[0], currency[1], currency[2]));
+            cachedItems.add(new Beans.CachedLineItem(currency[0], currency[1], currency[2]));
+        }
+    }
+
+    @Benchmark
+    public void lineItems() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, items);
+    }
+
+    @Benchmark
+    public void lineItems_cached() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, cachedItems);
+    }
+
+}
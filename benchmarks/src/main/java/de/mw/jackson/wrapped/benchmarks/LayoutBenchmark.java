@@ -0,0 +1,132 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.mw.jackson.wrapped.WrappingLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of schemaless events ({@code Map<String, Object>}) written in the wrapped layout:
+ * copied into nested maps before writing, and routed into the virtual objects by a {@link WrappingLayout} while writing.
+ * Passthrough of a flat JSON document (500 events) in the wrapped layout: read as tree and rewritten, and copied by {@link WrappingLayout#copy}.
+ *
+ * Run with {@code java -jar target/benchmarks.jar LayoutBenchmark -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayoutBenchmark {
+
+    private ObjectMapper mapper;
+    private WrappingLayout layout;
+    private Map<String, Object> event;
+    private byte[] document;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        layout = WrappingLayout.empty().wrap("name", "first", "last").wrap("address", "street", "city");
+
+        event = new LinkedHashMap<String, Object>();
+        event.put("age", 18);
+        event.put("first", "Joey");
+        event.put("last", "Sixpack");
+        event.put("street", "Sunset boulevard");
+        event.put("city", "Heaven");
+
+        try {
+            document = mapper.writeValueAsBytes(Collections.nCopies(500, event));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public void flat() throws IOException {
+        mapper.writeValue(NullOutputStream.INSTANCE, event);
+    }
+
+    @Benchmark
+    public void nestedMaps() throws IOException {
+        Map<String, Object> name = new LinkedHashMap<String, Object>();
+        Map<String, Object> address = new LinkedHashMap<String, Object>();
+        Map<String, Object> wrapped = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> field : event.entrySet()) {
+            String key = field.getKey();
+            if (key.equals("first") || key.equals("last")) {
+                name.put(key, field.getValue());
+            } else if (key.equals("street") || key.equals("city")) {
+                address.put(key, field.getValue());
+            } else {
+                wrapped.put(key, field.getValue());
+            }
+        }
+        wrapped.put("name", name);
+        wrapped.put("address", address);
+        mapper.writeValue(NullOutputStream.INSTANCE, wrapped);
+    }
+
+    @Benchmark
+    public void layout() throws IOException {
+        JsonGenerator gen = layout.applyTo(mapper.getFactory().createGenerator(NullOutputStream.INSTANCE, JsonEncoding.UTF8));
+        mapper.writeValue(gen, event);
+        gen.close();
+    }
+
+    @Benchmark
+    public void passthrough_tree() throws IOException {
+        ArrayNode events = (ArrayNode) mapper.readTree(document);
+        for (JsonNode flat : events) {
+            ObjectNode node = (ObjectNode) flat;
+            node.putObject("name").setAll(moveFields(node, "first", "last"));
+            node.putObject("address").setAll(moveFields(node, "street", "city"));
+        }
+        JsonGenerator gen = mapper.getFactory().createGenerator(NullOutputStream.INSTANCE, JsonEncoding.UTF8);
+        mapper.writeTree(gen, events);
+        gen.close();
+    }
+
+    @Benchmark
+    public void passthrough_copy() throws IOException {
+        JsonParser parser = mapper.createParser(document);
+        JsonGenerator gen = mapper.getFactory().createGenerator(NullOutputStream.INSTANCE, JsonEncoding.UTF8);
+        parser.nextToken();
+        layout.copy(parser, gen);
+        gen.close();
+        parser.close();
+    }
+
+    private static ObjectNode moveFields(ObjectNode node, String... fields) {
+        ObjectNode moved = node.objectNode();
+        for (String field : fields) {
+            moved.set(field, node.remove(field));
+        }
+        return moved;
+    }
+
+}
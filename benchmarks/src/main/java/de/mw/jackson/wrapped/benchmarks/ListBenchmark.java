@@ -0,0 +1,82 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of pages (lists) of wrapped beans compared to pages of flat beans,
+ * as property of a bean and as root value of a writer for the list type.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListBenchmark {
+
+    @Param("500")
+    public int elements;
+
+    private ObjectWriter writer;
+    private ObjectWriter flatListWriter;
+    private ObjectWriter wrappedListWriter;
+
+    private Beans.FlatPage flatPage;
+    private Beans.WrappedPage wrappedPage;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        writer = mapper.writer();
+        flatListWriter = mapper.writerFor(new TypeReference<List<Beans.Flat>>() {});
+        wrappedListWriter = mapper.writerFor(new TypeReference<List<Beans.PropertyLevel>>() {});
+
+        flatPage = new Beans.FlatPage();
+        wrappedPage = new Beans.WrappedPage();
+        for (int i = 0; i < elements; i++) {
+            flatPage.items.add(new Beans.Flat());
+            wrappedPage.items.add(new Beans.PropertyLevel());
+        }
+    }
+
+    @Benchmark
+    public void flatPage() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, flatPage);
+    }
+
+    @Benchmark
+    public void wrappedPage() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, wrappedPage);
+    }
+
+    @Benchmark
+    public void flatList() throws IOException {
+        flatListWriter.writeValue(NullOutputStream.INSTANCE, flatPage.items);
+    }
+
+    @Benchmark
+    public void wrappedList() throws IOException {
+        wrappedListWriter.writeValue(NullOutputStream.INSTANCE, wrappedPage.items);
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import java.io.OutputStream;
+
+/**
+ * OutputStream discarding everything, so that benchmarks measure serialization and not buffer growth.
+ */
+final class NullOutputStream extends OutputStream {
+
+    static final NullOutputStream INSTANCE = new NullOutputStream();
+
+    private NullOutputStream() {}
+
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+
+}
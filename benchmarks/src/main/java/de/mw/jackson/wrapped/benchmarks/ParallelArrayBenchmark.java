@@ -0,0 +1,84 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+import de.mw.jackson.wrapped.ParallelArrayWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write a large list of wrapped beans sequentially and by {@link ParallelArrayWriter} with pools of different sizes.
+ *
+ * The speedup is limited by the available cores, run with {@code java -jar target/benchmarks.jar ParallelArrayBenchmark -p threads=4,8,32}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParallelArrayBenchmark {
+
+    @Param("1000000")
+    public int elements;
+
+    @Param({"1", "4", "8", "32"})
+    public int threads;
+
+    @Param("1024")
+    public int chunkSize;
+
+    private ObjectWriter writer;
+    private ForkJoinPool pool;
+    private ParallelArrayWriter parallelWriter;
+    private List<Beans.PropertyLevel> values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        writer = new ObjectMapper().registerModule(new JsonWrappedModule()).writer();
+        pool = new ForkJoinPool(threads);
+        parallelWriter = new ParallelArrayWriter(writer).withPool(pool).withChunkSize(chunkSize);
+        values = new ArrayList<Beans.PropertyLevel>(elements);
+        for (int i = 0; i < elements; i++) {
+            Beans.PropertyLevel bean = new Beans.PropertyLevel();
+            bean.age = i;
+            values.add(bean);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void sequential() throws IOException {
+        writer.writeValue(NullOutputStream.INSTANCE, values);
+    }
+
+    @Benchmark
+    public void parallel() throws IOException {
+        parallelWriter.writeValue(NullOutputStream.INSTANCE, values);
+    }
+
+}
@@ -0,0 +1,81 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+import de.mw.jackson.wrapped.Projection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of sparse fieldsets: wrapped beans written completely, with a {@link Projection} parsed per request (cached)
+ * and with a prepared one, compared to flat beans filtered by a {@code @JsonFilter} selecting the same properties.
+ *
+ * Run with {@code java -jar target/benchmarks.jar ProjectionBenchmark -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    private static final String FIELDS = "age,name.first,address";
+
+    private ObjectWriter plainFilterWriter;
+    private ObjectWriter wrappingWriter;
+    private ObjectWriter wrappingProjectionWriter;
+
+    private Beans.FlatWithFilter flatWithFilter;
+    private Beans.PropertyLevel propertyLevel;
+
+    @Setup
+    public void setup() {
+        SimpleFilterProvider filters = new SimpleFilterProvider()
+                .addFilter("benchmark", SimpleBeanPropertyFilter.filterOutAllExcept("age", "first", "street", "city"));
+        plainFilterWriter = new ObjectMapper().writer(filters);
+
+        wrappingWriter = new ObjectMapper().registerModule(new JsonWrappedModule()).writer();
+        wrappingProjectionWriter = Projection.of(FIELDS).applyTo(wrappingWriter);
+
+        flatWithFilter = new Beans.FlatWithFilter();
+        propertyLevel = new Beans.PropertyLevel();
+    }
+
+    @Benchmark
+    public void flat_filter() throws IOException {
+        plainFilterWriter.writeValue(NullOutputStream.INSTANCE, flatWithFilter);
+    }
+
+    @Benchmark
+    public void wrapped_all() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, propertyLevel);
+    }
+
+    @Benchmark
+    public void wrapped_projection() throws IOException {
+        Projection.of(FIELDS).applyTo(wrappingWriter).writeValue(NullOutputStream.INSTANCE, propertyLevel);
+    }
+
+    @Benchmark
+    public void wrapped_preparedProjection() throws IOException {
+        wrappingProjectionWriter.writeValue(NullOutputStream.INSTANCE, propertyLevel);
+    }
+
+}
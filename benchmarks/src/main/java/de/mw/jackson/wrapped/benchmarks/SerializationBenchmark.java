@@ -0,0 +1,131 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JsonWrappedModule} compared to flat beans, hand-written nested DTOs and {@code @JsonUnwrapped}.
+ *
+ * Run with {@code java -jar target/benchmarks.jar SerializationBenchmark -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectWriter plainWriter;
+    private ObjectWriter wrappingWriter;
+
+    private Beans.Flat flat;
+    private Beans.NestedDto nestedDto;
+    private Beans.Unwrapped unwrapped;
+    private Beans.PropertyLevel propertyLevel;
+    private Beans.TypeLevel typeLevel;
+    private Beans.Paths paths;
+    private Beans.NestedFlat nestedFlat;
+    private Beans.NestedWrapped nestedWrapped;
+    private Beans.ManyFlat manyFlat;
+    private Beans.ManyWrappers manyWrappers;
+
+    @Setup
+    public void setup() throws IOException {
+        plainWriter = new ObjectMapper().writer();
+        wrappingWriter = new ObjectMapper().registerModule(new JsonWrappedModule()).writer();
+
+        flat = new Beans.Flat();
+        nestedDto = Beans.NestedDto.from(flat);
+        unwrapped = new Beans.Unwrapped();
+        propertyLevel = new Beans.PropertyLevel();
+        typeLevel = new Beans.TypeLevel();
+        paths = new Beans.Paths();
+        nestedFlat = new Beans.NestedFlat();
+        nestedWrapped = new Beans.NestedWrapped();
+        manyFlat = new Beans.ManyFlat();
+        manyWrappers = new Beans.ManyWrappers();
+    }
+
+    @Benchmark
+    public void flat() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, flat);
+    }
+
+    @Benchmark
+    public void flat_withModule() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, flat);
+    }
+
+    @Benchmark
+    public void handWrittenDto() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, nestedDto);
+    }
+
+    @Benchmark
+    public void handWrittenDto_mappedPerCall() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, Beans.NestedDto.from(flat));
+    }
+
+    @Benchmark
+    public void jsonUnwrapped() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, unwrapped);
+    }
+
+    @Benchmark
+    public void jsonWrapped_propertyLevel() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, propertyLevel);
+    }
+
+    @Benchmark
+    public void jsonWrapped_typeLevel() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, typeLevel);
+    }
+
+    @Benchmark
+    public void paths_handWrittenDto_mappedPerCall() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, Beans.PathsDto.from(flat));
+    }
+
+    @Benchmark
+    public void paths_jsonWrapped() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, paths);
+    }
+
+    @Benchmark
+    public void nested_flat() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, nestedFlat);
+    }
+
+    @Benchmark
+    public void nested_jsonWrapped() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, nestedWrapped);
+    }
+
+    @Benchmark
+    public void many_flat() throws IOException {
+        plainWriter.writeValue(NullOutputStream.INSTANCE, manyFlat);
+    }
+
+    @Benchmark
+    public void many_jsonWrapped() throws IOException {
+        wrappingWriter.writeValue(NullOutputStream.INSTANCE, manyWrappers);
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.mw.jackson.wrapped.JsonWrappedModule;
+import de.mw.jackson.wrapped.TreeWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the conversion of wrapped beans to trees by {@link ObjectMapper#valueToTree(Object)} and by {@link TreeWriter}.
+ *
+ * Run with {@code java -jar target/benchmarks.jar TreeBenchmark -prof gc} to compare the allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+
+    private ObjectMapper mapper;
+    private TreeWriter treeWriter;
+
+    private Beans.PropertyLevel propertyLevel;
+    private Beans.Paths paths;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        treeWriter = new TreeWriter(mapper);
+
+        propertyLevel = new Beans.PropertyLevel();
+        paths = new Beans.Paths();
+    }
+
+    @Benchmark
+    public JsonNode propertyLevel_valueToTree() {
+        return mapper.valueToTree(propertyLevel);
+    }
+
+    @Benchmark
+    public JsonNode propertyLevel_treeWriter() {
+        return treeWriter.valueToTree(propertyLevel);
+    }
+
+    @Benchmark
+    public JsonNode paths_valueToTree() {
+        return mapper.valueToTree(paths);
+    }
+
+    @Benchmark
+    public JsonNode paths_treeWriter() {
+        return treeWriter.valueToTree(paths);
+    }
+
+}
@@ -0,0 +1,188 @@
+package de.mw.jackson.wrapped.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.mw.jackson.wrapped.JsonWrapped;
+import de.mw.jackson.wrapped.JsonWrappedModule;
+import de.mw.jackson.wrapped.JsonWrappedProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Time to serialize the first instance of many generated classes with many properties,
+ * i.e. the warm-up of the serializers of a large application.
+ *
+ * The classes are compiled once per trial, every invocation uses a new {@link ObjectMapper}.
+ * {@code coldClasses} loads the classes again by a new class loader (nothing is known about the classes),
+ * {@code knownClasses} reuses the loaded classes (information shared by all mappers is already computed).
+ * With {@code index} the classes are compiled with the {@link JsonWrappedProcessor}, i.e. they are not scanned by reflection.
+ *
+ * Requires a JDK, run with {@code java -jar target/benchmarks.jar WarmUpBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class WarmUpBenchmark {
+
+    private static final String PACKAGE = "generated";
+
+    @Param("5000")
+    public int classes;
+
+    @Param("200")
+    public int properties;
+
+    /**
+     * Percentage of classes using {@link JsonWrapped}, the other classes are plain beans.
+     */
+    @Param({"0", "10", "100"})
+    public int wrappedPercent;
+
+    /**
+     * Compile with the {@link JsonWrappedProcessor}
+     */
+    @Param({"false", "true"})
+    public boolean index;
+
+    private Path dir;
+    private List<Class<?>> knownClasses;
+    private List<Class<?>> coldClasses;
+
+    @Setup(Level.Trial)
+    public void compile() throws Exception {
+        dir = Files.createTempDirectory("warmup-benchmark");
+        File packageDir = dir.resolve(PACKAGE).toFile();
+        packageDir.mkdirs();
+
+        List<String> arguments = new ArrayList<String>();
+        arguments.add("-nowarn");
+        if (index) {
+            arguments.add("-processor");
+            arguments.add(JsonWrappedProcessor.class.getName());
+        } else {
+            arguments.add("-proc:none");
+        }
+        arguments.add("-cp");
+        arguments.add(System.getProperty("java.class.path"));
+        arguments.add("-d");
+        arguments.add(dir.toString());
+        for (int i = 0; i < classes; i++) {
+            File source = new File(packageDir, className(i) + ".java");
+            try (Writer writer = Files.newBufferedWriter(source.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(source(i, i * 100 < wrappedPercent * classes));
+            }
+            arguments.add(source.getPath());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("WarmUpBenchmark requires a JDK");
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+            throw new IllegalStateException("compilation of generated classes failed");
+        }
+
+        knownClasses = loadClasses();
+    }
+
+    @Setup(Level.Invocation)
+    public void load() throws Exception {
+        coldClasses = loadClasses();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void coldClasses() throws Exception {
+        serializeAll(coldClasses);
+    }
+
+    @Benchmark
+    public void knownClasses() throws Exception {
+        serializeAll(knownClasses);
+    }
+
+    /**
+     * Construction of the serializers of the cold classes in parallel by {@link JsonWrappedModule#prewarm(ObjectMapper, java.util.Collection)}
+     */
+    @Benchmark
+    public void prewarmColdClasses() throws Exception {
+        JsonWrappedModule.prewarm(new ObjectMapper().registerModule(new JsonWrappedModule()), coldClasses);
+    }
+
+    private static void serializeAll(List<Class<?>> types) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        for (Class<?> type : types) {
+            mapper.writeValue(NullOutputStream.INSTANCE, type.getDeclaredConstructor().newInstance());
+        }
+    }
+
+    private List<Class<?>> loadClasses() throws Exception {
+        @SuppressWarnings("resource") // classes must stay loadable, the loader is dropped with them
+        ClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, WarmUpBenchmark.class.getClassLoader());
+        List<Class<?>> types = new ArrayList<Class<?>>(classes);
+        for (int i = 0; i < classes; i++) {
+            types.add(loader.loadClass(PACKAGE + "." + className(i)));
+        }
+        return types;
+    }
+
+    private static String className(int i) {
+        return "Bean" + i;
+    }
+
+    /**
+     * Wrapped classes put every tenth property into one of ten virtual properties.
+     */
+    private String source(int i, boolean wrapped) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE).append(";\n");
+        source.append("public class ").append(className(i)).append(" {\n");
+        for (int p = 0; p < properties; p++) {
+            if (wrapped && p % 10 == 0) {
+                source.append("  @de.mw.jackson.wrapped.JsonWrapped(\"group").append(p % 100 / 10).append("\")\n");
+            }
+            source.append("  public int p").append(p).append(" = ").append(p).append(";\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+}
@@ -0,0 +1,88 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+
+import java.io.IOException;
+
+/**
+ * Generator used to check if properties would be written without writing them.
+ *
+ * Properties decide about their inclusion (nulls, empty values, filters, views) before writing their field name,
+ * thus the first field name aborts the check with {@link NotEmpty}. All other information (features, contexts)
+ * is taken from the actual generator.
+ * Probes are reused per thread, so the check does not allocate.
+ */
+class EmptinessProbe extends JsonGeneratorDelegate {
+
+    private static final NotEmpty NOT_EMPTY = new NotEmpty();
+
+    private static final ThreadLocal<EmptinessProbe> PROBES = new ThreadLocal<EmptinessProbe>() {
+        @Override
+        protected EmptinessProbe initialValue() {
+            return new EmptinessProbe();
+        }
+    };
+
+    private EmptinessProbe() {
+        super(null, false);
+    }
+
+    /**
+     * Returns the probe of the current thread for the given generator, a new one if it is already in use.
+     * Release it after use.
+     */
+    static EmptinessProbe acquire(JsonGenerator gen) {
+        EmptinessProbe probe = PROBES.get();
+        if (probe.delegate != null) { // serialization within a check, e.g. by a property filter
+            probe = new EmptinessProbe();
+        }
+        probe.delegate = gen;
+        return probe;
+    }
+
+    void release() {
+        delegate = null;
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        throw NOT_EMPTY;
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        throw NOT_EMPTY;
+    }
+
+    @Override
+    public void writeFieldId(long id) throws IOException {
+        throw NOT_EMPTY;
+    }
+
+    @Override
+    public void writeOmittedField(String fieldName) throws IOException {
+        throw NOT_EMPTY;
+    }
+
+    /**
+     * Signals that at least one property would be written.
+     * Preallocated without stack trace, it is a {@link IOException} (not a {@link com.fasterxml.jackson.core.JacksonException})
+     * so it is passed through by the exception handling of the serializers.
+     */
+    static final class NotEmpty extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private NotEmpty() {
+            super("virtual object is not empty");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+}
@@ -0,0 +1,390 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.cfg.DatatypeFeatures;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.util.LRUMap;
+
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Bounded cache of the written JSON of a virtual object ({@link JsonWrapped#cache()}), written as raw value on a hit.
+ *
+ * The fragments are keyed by the bean instance or the values of all wrapped properties (including nested virtual properties),
+ * together with the settings changing the output: view, features, filters, date format, time zone, locale and base64 variant of the writer,
+ * the features and escaping of the generator. Attributes of the writer are not part of the key.
+ * Only JSON text without pretty printer is cached, other output (binary formats, trees, pretty printed) is written as usual.
+ * Fragments are rendered by the factory of the mapper, thus they are only used for generators configured like the ones of that factory
+ * (same features, e.g. not for factories escaping forward slashes if the mapper's factory does not).
+ * Factory settings not visible on the generator (the quote char) are not compared, such generators must not have the mapper as codec.
+ *
+ * Beans are referenced weakly by their identity ({@link JsonWrapped.Cache#INSTANCE}), the cache does not keep them alive;
+ * keys of collected beans are never hit again and are evicted like the least recently used ones.
+ */
+final class FragmentCache {
+
+    private static final int MAX_FRAGMENTS = 1000;
+
+    private final VirtualObjectSerializer serializer;
+    private final JsonWrapped.Cache mode;
+    private final LRUMap<Object, SerializedString> fragments = new LRUMap<Object, SerializedString>(16, MAX_FRAGMENTS);
+    private volatile BeanPropertyWriter[] valueProps; // collected once the serializer is resolved
+    private volatile Settings lastSettings; // typically the same writer and generator settings are used for all writes
+    private final ThreadLocal<LookupKey> lookupKeys = new ThreadLocal<LookupKey>() {
+        @Override
+        protected LookupKey initialValue() {
+            return new LookupKey();
+        }
+    };
+
+    /**
+     * @param mode {@link JsonWrapped.Cache#INSTANCE} or {@link JsonWrapped.Cache#VALUES}
+     */
+    FragmentCache(VirtualObjectSerializer serializer, JsonWrapped.Cache mode) {
+        this.serializer = serializer;
+        this.mode = mode;
+    }
+
+    JsonWrapped.Cache getMode() {
+        return mode;
+    }
+
+    /**
+     * Writes the virtual object of the bean, from the cache if possible
+     */
+    void serialize(Object bean, JsonGenerator gen, SerializerProvider provider) throws Exception {
+        JsonFactory factory = jsonFactoryOf(gen);
+        if (factory == null) {
+            serializer.serialize(bean, gen, provider);
+            return;
+        }
+        Settings settings = settings(provider.getConfig(), gen, factory);
+        if (!settings.isCacheable()) {
+            serializer.serialize(bean, gen, provider);
+            return;
+        }
+        LookupKey lookup = lookupKeys.get();
+        SerializedString fragment;
+        Object key = null;
+        try {
+            if (mode == JsonWrapped.Cache.INSTANCE) {
+                lookup.setBean(settings, bean);
+            } else {
+                lookup.setValues(settings, values(bean, lookup.values));
+            }
+            fragment = fragments.get(lookup);
+            if (fragment == null) {
+                key = lookup.toKey();
+            }
+        } finally {
+            lookup.clear();
+        }
+        if (fragment == null) { // rendering may serialize other cached beans on this thread, the lookup key is released before
+            fragment = render(bean, factory, gen, provider);
+            fragments.put(key, fragment);
+        }
+        gen.writeRawValue(fragment);
+    }
+
+    private Settings settings(SerializationConfig config, JsonGenerator gen, JsonFactory factory) throws Exception {
+        Settings settings = lastSettings;
+        if (settings == null || !settings.isFor(config, gen)) {
+            settings = new Settings(config, gen, factory);
+            lastSettings = settings;
+        }
+        return settings;
+    }
+
+    /**
+     * @return factory to render fragments for the generator, null if its output is not cached
+     */
+    private static JsonFactory jsonFactoryOf(JsonGenerator gen) {
+        if (gen instanceof JsonGeneratorImpl && gen.getPrettyPrinter() == null && gen.getCodec() instanceof ObjectMapper) {
+            return ((ObjectMapper) gen.getCodec()).getFactory();
+        }
+        return null;
+    }
+
+    /**
+     * Writes the virtual object with a generator of the factory configured like the given one (same features, see {@link Settings})
+     */
+    private SerializedString render(Object bean, JsonFactory factory, JsonGenerator gen, SerializerProvider provider) throws Exception {
+        StringWriter out = new StringWriter();
+        JsonGenerator fragmentGen = factory.createGenerator(out);
+        try {
+            provider.getConfig().initialize(fragmentGen);
+            fragmentGen.setPrettyPrinter(null);
+            fragmentGen.setHighestNonEscapedChar(gen.getHighestEscapedChar());
+            fragmentGen.setCharacterEscapes(gen.getCharacterEscapes());
+            serializer.serialize(bean, fragmentGen, provider);
+        } finally {
+            fragmentGen.close();
+        }
+        return new SerializedString(out.toString());
+    }
+
+    private Object[] values(Object bean, Object[] values) throws Exception {
+        BeanPropertyWriter[] props = valueProps;
+        if (props == null) {
+            List<BeanPropertyWriter> collected = new ArrayList<BeanPropertyWriter>();
+            collectValueProperties(serializer, collected);
+            props = collected.toArray(new BeanPropertyWriter[collected.size()]);
+            valueProps = props;
+        }
+        if (values == null || values.length != props.length) {
+            values = new Object[props.length];
+        }
+        for (int i = 0; i < props.length; i++) {
+            values[i] = props[i].get(bean);
+        }
+        return values;
+    }
+
+    private static void collectValueProperties(VirtualObjectSerializer serializer, List<BeanPropertyWriter> collected) {
+        for (Iterator<PropertyWriter> it = serializer.properties(); it.hasNext(); ) {
+            PropertyWriter prop = it.next();
+            if (prop instanceof WrappingPropertyWriter) { // nested virtual property, same bean
+                collectValueProperties(((WrappingPropertyWriter) prop).getWrappedPropertiesSerializer(), collected);
+            } else {
+                collected.add((BeanPropertyWriter) prop);
+            }
+        }
+    }
+
+    /**
+     * Settings of the output, compared instead of the config: writers (e.g. {@code mapper.writerWithView(..)}) create new configs for the same settings.
+     *
+     * Features of JSON generators are partly applied when they are created (e.g. escaping of forward slashes), they cannot be copied to another generator.
+     * Thus fragments are only used if a generator of the factory, initialized by the config, has the same features as the given one.
+     */
+    private static final class Settings {
+
+        private final SerializationConfig config; // only to reuse the settings for the same config
+        private final Class<?> activeView;
+        private final int serializationFeatures;
+        private final FilterProvider filterProvider;
+        private final DateFormat dateFormat;
+        private final TimeZone timeZone;
+        private final Locale locale;
+        private final Base64Variant base64Variant;
+        private final DatatypeFeatures datatypeFeatures;
+        private final int generatorFeatures;
+        private final int formatFeatures;
+        private final boolean cacheable; // generators of the factory are configured like the given one
+        private final int highestNonEscapedChar;
+        private final CharacterEscapes escapes;
+        private final int hash;
+
+        Settings(SerializationConfig config, JsonGenerator gen, JsonFactory factory) throws Exception {
+            this.config = config;
+            this.activeView = config.getActiveView();
+            this.serializationFeatures = config.getSerializationFeatures();
+            this.filterProvider = config.getFilterProvider();
+            this.dateFormat = config.getDateFormat();
+            this.timeZone = config.getTimeZone();
+            this.locale = config.getLocale();
+            this.base64Variant = config.getBase64Variant();
+            this.datatypeFeatures = config.getDatatypeFeatures();
+            this.generatorFeatures = gen.getFeatureMask();
+            this.formatFeatures = gen.getFormatFeatures();
+            this.cacheable = rendersLike(config, factory);
+            this.highestNonEscapedChar = gen.getHighestEscapedChar();
+            this.escapes = gen.getCharacterEscapes();
+            this.hash = 31 * (31 * (activeView == null ? 0 : activeView.hashCode()) + serializationFeatures) + generatorFeatures;
+        }
+
+        private boolean rendersLike(SerializationConfig config, JsonFactory factory) throws Exception {
+            JsonGenerator probe = factory.createGenerator(new StringWriter());
+            try {
+                config.initialize(probe);
+                return probe.getFeatureMask() == generatorFeatures && probe.getFormatFeatures() == formatFeatures;
+            } finally {
+                probe.close();
+            }
+        }
+
+        boolean isFor(SerializationConfig config, JsonGenerator gen) {
+            return this.config == config && generatorFeatures == gen.getFeatureMask() && formatFeatures == gen.getFormatFeatures()
+                    && highestNonEscapedChar == gen.getHighestEscapedChar() && escapes == gen.getCharacterEscapes();
+        }
+
+        /**
+         * @return true if fragments rendered by the factory can be written to the generators of these settings
+         */
+        boolean isCacheable() {
+            return cacheable;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Settings)) {
+                return false;
+            }
+            Settings other = (Settings) obj;
+            return hash == other.hash && activeView == other.activeView && serializationFeatures == other.serializationFeatures
+                    && filterProvider == other.filterProvider && dateFormat == other.dateFormat && timeZone == other.timeZone
+                    && locale == other.locale && base64Variant == other.base64Variant && datatypeFeatures == other.datatypeFeatures
+                    && generatorFeatures == other.generatorFeatures && formatFeatures == other.formatFeatures
+                    && highestNonEscapedChar == other.highestNonEscapedChar && escapes == other.escapes;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Values of the wrapped properties
+     */
+    private static final class ValuesKey {
+
+        private final Settings settings;
+        private final Object[] values;
+        private final int hash;
+
+        ValuesKey(Settings settings, Object[] values) {
+            this.settings = settings;
+            this.values = values;
+            this.hash = 31 * settings.hashCode() + Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof LookupKey) {
+                return obj.equals(this);
+            }
+            if (!(obj instanceof ValuesKey)) {
+                return false;
+            }
+            ValuesKey other = (ValuesKey) obj;
+            return hash == other.hash && settings.equals(other.settings) && Arrays.deepEquals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Bean referenced weakly by its identity
+     */
+    private static final class InstanceKey extends WeakReference<Object> {
+
+        private final Settings settings;
+        private final int hash;
+
+        InstanceKey(Settings settings, Object bean) {
+            super(bean);
+            this.settings = settings;
+            this.hash = 31 * settings.hashCode() + System.identityHashCode(bean);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof LookupKey) {
+                return obj.equals(this);
+            }
+            if (!(obj instanceof InstanceKey)) {
+                return false;
+            }
+            InstanceKey other = (InstanceKey) obj;
+            Object bean = get();
+            return hash == other.hash && bean != null && bean == other.get() && settings.equals(other.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Reusable key of the current thread to look up fragments without allocating,
+     * compares equal to the {@link InstanceKey} or {@link ValuesKey} created from it.
+     */
+    private static final class LookupKey {
+
+        private Settings settings;
+        private Object bean;
+        private Object[] values;
+        private int hash;
+
+        void setBean(Settings settings, Object bean) {
+            this.settings = settings;
+            this.bean = bean;
+            this.hash = 31 * settings.hashCode() + System.identityHashCode(bean);
+        }
+
+        void setValues(Settings settings, Object[] values) {
+            this.settings = settings;
+            this.values = values;
+            this.hash = 31 * settings.hashCode() + Arrays.deepHashCode(values);
+        }
+
+        /**
+         * @return key to store a fragment
+         */
+        Object toKey() {
+            return bean != null ? new InstanceKey(settings, bean) : new ValuesKey(settings, values.clone());
+        }
+
+        /**
+         * Releases the settings and values, the values array is kept for the next lookup
+         */
+        void clear() {
+            settings = null;
+            bean = null;
+            if (values != null) {
+                Arrays.fill(values, null);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof InstanceKey) {
+                InstanceKey other = (InstanceKey) obj;
+                return hash == other.hash && bean != null && bean == other.get() && settings.equals(other.settings);
+            }
+            if (obj instanceof ValuesKey) {
+                ValuesKey other = (ValuesKey) obj;
+                return hash == other.hash && bean == null && settings.equals(other.settings) && Arrays.deepEquals(values, other.values);
+            }
+            return this == obj;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
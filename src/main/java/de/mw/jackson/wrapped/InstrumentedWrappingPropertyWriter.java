@@ -0,0 +1,132 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.util.Annotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.StringWriter;
+
+/**
+ * {@link WrappingPropertyWriter} reporting to a {@link JsonWrappedListener}, only used if there is a listener.
+ * 
+ * The written output is taken from the buffered output of the generator before and after writing.
+ * A flush of the buffer while writing would distort it, thus it is only reported if the output target
+ * tells that nothing was flushed meanwhile (in-memory targets, see {@link #flushedOutput(Object)}).
+ * Virtual properties omitted as empty ({@link JsonWrapped#omitIfEmpty()}) are not written, thus not reported.
+ */
+class InstrumentedWrappingPropertyWriter extends WrappingPropertyWriter {
+    
+    private final JsonWrappedListener listener;
+    private final JfrSupport.SamplingListener sampling; // not null if only JFR events are sampled
+    private final Class<?> beanType;
+    private final String path;
+    
+    InstrumentedWrappingPropertyWriter(BeanPropertyDefinition propDef, 
+                                       Annotations contextAnnotations, 
+                                       JavaType declaredType,
+                                       Class<?>[] includeInViews,
+                                       VirtualObjectSerializer wrappedPropsSerializer,
+                                       boolean omitIfEmpty,
+                                       JsonWrapped.Cache cache,
+                                       JsonWrappedListener listener,
+                                       Class<?> beanType,
+                                       String path) {
+        
+        super(propDef, contextAnnotations, declaredType, includeInViews, wrappedPropsSerializer, omitIfEmpty, cache);
+        this.listener = listener;
+        this.sampling = listener instanceof JfrSupport.SamplingListener ? (JfrSupport.SamplingListener) listener : null;
+        this.beanType = beanType;
+        this.path = path;
+    }
+
+    private InstrumentedWrappingPropertyWriter(InstrumentedWrappingPropertyWriter base, PropertyName name) {
+        super(base, name);
+        this.listener = base.listener;
+        this.sampling = base.sampling;
+        this.beanType = base.beanType;
+        this.path = base.path;
+    }
+
+    private InstrumentedWrappingPropertyWriter(InstrumentedWrappingPropertyWriter base, VirtualObjectSerializer wrappedPropsSerializer) {
+        super(base, wrappedPropsSerializer);
+        this.listener = base.listener;
+        this.sampling = base.sampling;
+        this.beanType = base.beanType;
+        this.path = base.path;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new InstrumentedWrappingPropertyWriter(this, newName);
+    }
+
+    @Override
+    protected WrappingPropertyWriter withWrappedPropertiesSerializer(VirtualObjectSerializer wrappedPropsSerializer) {
+        return new InstrumentedWrappingPropertyWriter(this, wrappedPropsSerializer);
+    }
+
+    @Override
+    public void serializeAsField(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
+        if (jgen instanceof EmptinessProbe || (sampling != null && !sampling.isRecording())) { // nothing is written or measured
+            super.serializeAsField(value, jgen, provider);
+            return;
+        }
+        if (isOmitted(value, jgen, provider)) {
+            serializeAsOmittedField(value, jgen, provider);
+            return;
+        }
+        long start = System.nanoTime();
+        int bufferedBefore = jgen.getOutputBuffered();
+        long flushedBefore = flushedOutput(jgen.getOutputTarget());
+        serializeField(value, jgen, provider);
+        report(jgen, start, bufferedBefore, flushedBefore);
+    }
+
+    @Override
+    public void serializeAsElement(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
+        if (jgen instanceof EmptinessProbe || (sampling != null && !sampling.isRecording())) { // nothing is written or measured
+            super.serializeAsElement(value, jgen, provider);
+            return;
+        }
+        long start = System.nanoTime();
+        int bufferedBefore = jgen.getOutputBuffered();
+        long flushedBefore = flushedOutput(jgen.getOutputTarget());
+        super.serializeAsElement(value, jgen, provider);
+        report(jgen, start, bufferedBefore, flushedBefore);
+    }
+
+    private void report(JsonGenerator jgen, long start, int bufferedBefore, long flushedBefore) {
+        long nanos = System.nanoTime() - start;
+        int bufferedAfter = jgen.getOutputBuffered();
+        boolean flushed = flushedBefore < 0 || flushedOutput(jgen.getOutputTarget()) != flushedBefore;
+        long bytes = (bufferedBefore < 0 || flushed || bufferedAfter < bufferedBefore) ? -1 : bufferedAfter - bufferedBefore;
+        listener.virtualPropertySerialized(beanType, path, nanos, bytes);
+    }
+
+    /**
+     * @return output already flushed to the target, -1 if the target does not tell it (e.g. streams of files or sockets)
+     */
+    private static long flushedOutput(Object target) {
+        if (target instanceof ByteArrayBuilder) { // ObjectMapper.writeValueAsBytes
+            return ((ByteArrayBuilder) target).size();
+        }
+        if (target instanceof ByteArrayOutputStream) {
+            return ((ByteArrayOutputStream) target).size();
+        }
+        if (target instanceof StringWriter) {
+            return ((StringWriter) target).getBuffer().length();
+        }
+        if (target instanceof CharArrayWriter) {
+            return ((CharArrayWriter) target).size();
+        }
+        return -1;
+    }
+    
+}
@@ -0,0 +1,95 @@
+package de.mw.jackson.wrapped;
+
+/**
+ * Guarded access to the Java Flight Recorder events, safe on every JDK.
+ * 
+ * The events are compiled for JDK 11 into {@code META-INF/versions/11} of the multi-release jar and loaded reflectively,
+ * only if the JFR API is present and Flight Recorder is supported by the JVM, otherwise all methods do nothing.
+ * 
+ * The serialization of virtual properties is sampled: one of {@value #SAMPLE_RATE} calls is recorded 
+ * and every call taking at least {@value #SLOW_NANOS} ns.
+ */
+final class JfrSupport {
+    
+    static final int SAMPLE_RATE = 1024;
+    static final long SLOW_NANOS = 1000000L;
+    
+    private static final Recorder RECORDER = load();
+    
+    private JfrSupport() {
+    }
+    
+    /**
+     * @return whether the events can be recorded at all
+     */
+    static boolean isAvailable() {
+        return RECORDER != null;
+    }
+    
+    /**
+     * @return handle of the started event, null if it is not recorded
+     */
+    static Object beginSerializerConstruction() {
+        return RECORDER != null ? RECORDER.beginSerializerConstruction() : null;
+    }
+    
+    /**
+     * @param event handle of {@link #beginSerializerConstruction()}, might be null
+     */
+    static void commitSerializerConstruction(Object event, Class<?> beanType, boolean wrapped, long planNanos, long wrapNanos) {
+        if (event != null) {
+            RECORDER.commitSerializerConstruction(event, beanType, wrapped, planNanos, wrapNanos);
+        }
+    }
+    
+    /**
+     * Decided once per serializer, thus serializers created before a recording was started are not sampled.
+     * Serializers created while it was recorded stay instrumented, but without a listener of the module they check
+     * per write whether the event is still recorded and skip the measurement otherwise, see {@link SamplingListener}.
+     * 
+     * @param listener listener of the module, might be null
+     * @return listener additionally sampling the serialization of virtual properties if that event is recorded, 
+     *         otherwise the given listener
+     */
+    static JsonWrappedListener withSerializationEvents(JsonWrappedListener listener) {
+        return RECORDER != null ? RECORDER.withSerializationEvents(listener) : listener;
+    }
+    
+    private static Recorder load() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            Recorder recorder = (Recorder) Class.forName("de.mw.jackson.wrapped.JfrEvents").getDeclaredConstructor().newInstance();
+            return recorder.isAvailable() ? recorder : null;
+        } catch (ReflectiveOperationException e) { // JDK 8 or events not in the jar
+            return null;
+        } catch (LinkageError e) { // e.g. module jdk.jfr not resolved
+            return null;
+        }
+    }
+    
+    /**
+     * Implemented by the events for JDK 11+
+     */
+    interface Recorder {
+        
+        boolean isAvailable();
+        
+        Object beginSerializerConstruction();
+        
+        void commitSerializerConstruction(Object event, Class<?> beanType, boolean wrapped, long planNanos, long wrapNanos);
+        
+        JsonWrappedListener withSerializationEvents(JsonWrappedListener listener);
+    }
+    
+    /**
+     * Listener only sampling events, without a listener of the module
+     */
+    interface SamplingListener extends JsonWrappedListener {
+        
+        /**
+         * @return whether the event is still recorded, i.e. the serialization has to be measured
+         */
+        boolean isRecording();
+    }
+    
+}
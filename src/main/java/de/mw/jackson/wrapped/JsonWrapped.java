@@ -22,7 +22,7 @@ import java.lang.annotation.Target;
 public @interface JsonWrapped {
     
     /**
-     * Name of the virtual property
+     * Name of the virtual property, a dotted path (e.g. "meta.audit") creates nested virtual properties
      */
     String value();
     
@@ -36,4 +36,45 @@ public @interface JsonWrapped {
      */
     Class<?>[] views() default {};
     
+    /**
+     * Omit the virtual property if none of its wrapped properties would be written (e.g. all are null and excluded by
+     * {@link com.fasterxml.jackson.annotation.JsonInclude}), instead of writing an empty object.
+     * Enabled for the virtual property if enabled by any annotation of its wrapped properties.
+     * 
+     * Limitation: the values of the wrapped properties are accessed twice, up to the first written property.
+     */
+    boolean omitIfEmpty() default false;
+    
+    /**
+     * Caches the written virtual object (JSON text only) instead of writing its wrapped properties again, for immutable data 
+     * repeated across many beans (e.g. a currency of line items). The cache of each virtual property is bounded, least recently used
+     * entries are evicted. Enabled for the virtual property if enabled by any annotation of its wrapped properties, 
+     * {@link Cache#VALUES} has precedence over {@link Cache#INSTANCE}.
+     * 
+     * Limitation: values written by object id ({@link com.fasterxml.jackson.annotation.JsonIdentityInfo}) must not be cached.
+     */
+    Cache cache() default Cache.NONE;
+    
+    /**
+     * Key of the cached virtual objects, see {@link JsonWrapped#cache()}
+     */
+    enum Cache {
+        
+        /**
+         * Not cached
+         */
+        NONE,
+        
+        /**
+         * Cached by the instance of the bean, the wrapped properties of a bean must not change once written
+         */
+        INSTANCE,
+        
+        /**
+         * Cached by the values of the wrapped properties, these must be immutable and implement equals and hashCode
+         * (e.g. strings, numbers, enums), the properties are still read but not serialized
+         */
+        VALUES
+    }
+    
 }
\ No newline at end of file
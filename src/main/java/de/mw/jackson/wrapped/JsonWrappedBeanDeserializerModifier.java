@@ -0,0 +1,55 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.BuilderBasedDeserializer;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+
+/**
+ * BeanDeserializerModifier that detects the {@link JsonWrapped} annotation 
+ * and reads the properties of virtual objects back into the bean.
+ * 
+ * For builders the annotations of the built type are used.
+ */
+class JsonWrappedBeanDeserializerModifier extends BeanDeserializerModifier {
+    
+    private final WrappingRules rules;
+    
+    JsonWrappedBeanDeserializerModifier(WrappingRules rules) {
+        this.rules = rules;
+    }
+    
+    @Override
+    public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+        if (deserializer instanceof BeanDeserializerBase) {
+            BeanDescription valueDesc = (deserializer instanceof BuilderBasedDeserializer ? findBuiltType(config, beanDesc) : beanDesc);
+            WrappingPlan.TypeLevel rulesTypeLevel = (valueDesc == null ? null : rules.typeLevel(valueDesc.getBeanClass()));
+            if (valueDesc != null && (WrappingPlan.forType(config, valueDesc.getBeanClass()).mayNeedWrapping() || rulesTypeLevel != null)) {
+                VirtualPropertyTree virtualProperties = VirtualPropertyTree.of(valueDesc.getClassInfo(), rulesTypeLevel);
+                if (!virtualProperties.isEmpty()) {
+                    return new UnwrappingBeanDeserializer(deserializer, virtualProperties);
+                }
+            }
+        }
+        
+        return deserializer;
+    }
+    
+    /**
+     * The built type is the return type of the build method of the builder
+     */
+    private BeanDescription findBuiltType(DeserializationConfig config, BeanDescription builderDesc) {
+        JsonPOJOBuilder.Value builderConfig = builderDesc.findPOJOBuilderConfig();
+        String buildMethodName = (builderConfig == null) ? JsonPOJOBuilder.DEFAULT_BUILD_METHOD : builderConfig.buildMethodName;
+        AnnotatedMethod buildMethod = builderDesc.findMethod(buildMethodName, null);
+        if (buildMethod == null) {
+            return null;
+        }
+        return config.introspect(config.constructType(buildMethod.getRawReturnType()));
+    }
+
+}
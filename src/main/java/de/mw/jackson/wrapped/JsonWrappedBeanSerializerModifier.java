@@ -5,19 +5,51 @@ import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.ser.BeanSerializer;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
 
 /**
  * BeanSerializerModifier that detects the {@link JsonWrapped} annotation 
  * and modifies the original {@link BeanSerializer} accordingly.
+ * 
+ * Properties are modified by other modules before any serializer is modified, 
+ * thus properties optimized by e.g. Blackbird or Afterburner are wrapped regardless of the registration order.
+ * Plain {@link BeanSerializer}s (without virtual properties) are copied as well, so {@link Projection}s apply to all beans.
+ * 
+ * The construction is recorded by Java Flight Recorder if available, see {@link JfrSupport}.
  */
 class JsonWrappedBeanSerializerModifier extends BeanSerializerModifier {
     
+    private final JsonWrappedListener listener;
+    private final WrappingRules rules;
+    private final WrappingInterner interner = new WrappingInterner();
+    
+    JsonWrappedBeanSerializerModifier(JsonWrappedListener listener, WrappingRules rules) {
+        this.listener = listener;
+        this.rules = rules;
+    }
+    
     @Override
     public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
-        if (serializer instanceof BeanSerializer) {
-            WrappingBeanSerializerBuilder builder = new WrappingBeanSerializerBuilder((BeanSerializer) serializer);
-            if (builder.needsWrapping(beanDesc)) {
-                return builder.withWrappedProperties(config, beanDesc);
+        if (serializer instanceof BeanSerializerBase && !serializer.isUnwrappingSerializer()) {
+            Object event = JfrSupport.beginSerializerConstruction();
+            long start = event != null ? System.nanoTime() : 0;
+            WrappingPlan plan = WrappingPlan.forType(config, beanDesc.getBeanClass());
+            WrappingPlan.TypeLevel rulesTypeLevel = rules.typeLevel(beanDesc.getBeanClass());
+            long planned = event != null ? System.nanoTime() : 0;
+            BeanSerializer wrappingSerializer = null;
+            if (plan.mayNeedWrapping() || rulesTypeLevel != null) {
+                WrappingPlan.TypeLevel typeLevel = WrappingPlan.TypeLevel.withFallback(rulesTypeLevel, plan.typeLevel(beanDesc.getClassInfo().getAnnotation(JsonWrapped.class)));
+                wrappingSerializer = new WrappingBeanSerializerBuilder((BeanSerializerBase) serializer, JfrSupport.withSerializationEvents(listener), interner)
+                                                .withWrappedProperties(config, beanDesc, typeLevel);
+            }
+            if (event != null) {
+                JfrSupport.commitSerializerConstruction(event, beanDesc.getBeanClass(), wrappingSerializer != null, planned - start, System.nanoTime() - planned);
+            }
+            if (wrappingSerializer != null) {
+                return wrappingSerializer;
+            }
+            if (serializer.getClass() == BeanSerializer.class) { // subclasses (of other modules) may change the serialization
+                return new WrappingBeanSerializerBuilder((BeanSerializerBase) serializer, null, interner).withoutWrappedProperties(beanDesc);
             }
         }
         
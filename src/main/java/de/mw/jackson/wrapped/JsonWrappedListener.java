@@ -0,0 +1,24 @@
+package de.mw.jackson.wrapped;
+
+/**
+ * Listener for metrics about the serialization of virtual properties, registered via {@link JsonWrappedModule#setListener(JsonWrappedListener)}.
+ * 
+ * Called by the serializing threads for every written virtual property, thus implementations have to be thread-safe and fast.
+ * Virtual properties omitted as empty ({@link JsonWrapped#omitIfEmpty()}) are not written and not reported.
+ * Counts per (bean type, virtual property) are the number of calls.
+ * Without a listener the serializers are not instrumented at all.
+ */
+public interface JsonWrappedListener {
+    
+    /**
+     * @param beanType type of the bean containing the virtual property
+     * @param virtualProperty name of the virtual property, the path for nested virtual properties (e.g. "meta.audit")
+     * @param nanos time spent to write the virtual property including its properties
+     * @param bytes output written for the virtual property including its name (bytes or characters depending on the generator), 
+     *              -1 if unknown, i.e. the generator does not report its buffered output or it can not be verified that the output
+     *              was not flushed meanwhile (only in-memory targets like {@code ObjectMapper.writeValueAsBytes}, {@code ByteArrayOutputStream}
+     *              or {@code StringWriter} tell their size, {@code ObjectMapper.writeValueAsString} and streams do not)
+     */
+    void virtualPropertySerialized(Class<?> beanType, String virtualProperty, long nanos, long bytes);
+    
+}
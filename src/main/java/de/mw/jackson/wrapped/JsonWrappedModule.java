@@ -1,12 +1,103 @@
 package de.mw.jackson.wrapped;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 public class JsonWrappedModule extends SimpleModule {
     
+    private final WrappingRules rules = new WrappingRules();
+    
     public JsonWrappedModule() {
         super("JsonWrappedModule");
-        setSerializerModifier(new JsonWrappedBeanSerializerModifier());
+        setSerializerModifier(new JsonWrappedBeanSerializerModifier(null, rules));
+        setDeserializerModifier(new JsonWrappedBeanDeserializerModifier(rules));
+    }
+    
+    /**
+     * Registers a listener for metrics about the serialization of virtual properties, 
+     * must be called before the module is registered.
+     * 
+     * @param listener listener or null for no metrics
+     * @return this module
+     */
+    public JsonWrappedModule setListener(JsonWrappedListener listener) {
+        setSerializerModifier(new JsonWrappedBeanSerializerModifier(listener, rules));
+        return this;
+    }
+    
+    /**
+     * Wraps properties of a type and its subtypes like {@link JsonWrapped} on type level, e.g. for classes that can not be annotated.
+     * Multiple virtual properties can be declared for the same type, must be called before the module is registered.
+     * 
+     * @param type type declaring the properties
+     * @param virtualProperty name or dotted path of the virtual property, see {@link JsonWrapped#value()}
+     * @param properties names of the wrapped properties
+     * @return this module
+     */
+    public JsonWrappedModule wrap(Class<?> type, String virtualProperty, String... properties) {
+        return wrap(type, virtualProperty, null, false, properties);
+    }
+    
+    /**
+     * Like {@link #wrap(Class, String, String...)}, with the views of the virtual property ({@link JsonWrapped#views()})
+     * and whether it is omitted if empty ({@link JsonWrapped#omitIfEmpty()}).
+     * 
+     * @param views views the virtual property is included in, null or empty for the views of the wrapped properties
+     * @return this module
+     */
+    public JsonWrappedModule wrap(Class<?> type, String virtualProperty, Class<?>[] views, boolean omitIfEmpty, String... properties) {
+        rules.add(type, virtualProperty, views, omitIfEmpty, properties);
+        return this;
+    }
+    
+    /**
+     * Constructs and caches the serializers of the given types in parallel by the common {@link ForkJoinPool}, 
+     * e.g. before a service accepts requests, thus the first serialization of these types does not wait for their construction.
+     * 
+     * @param mapper mapper with registered module
+     * @param types root types to serialize
+     * @return time spent in nanoseconds
+     * @throws JsonMappingException if a serializer can not be constructed, after all others are constructed
+     */
+    public static long prewarm(ObjectMapper mapper, Collection<? extends Class<?>> types) throws JsonMappingException {
+        return prewarm(mapper, types, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Like {@link #prewarm(ObjectMapper, Collection)}, but by the given pool.
+     */
+    public static long prewarm(ObjectMapper mapper, Collection<? extends Class<?>> types, ForkJoinPool pool) throws JsonMappingException {
+        return SerializerPrewarmer.prewarm(mapper, types, pool);
+    }
+    
+    /**
+     * Like {@link #prewarm(ObjectMapper, Collection)} for all classes declaring a {@link JsonWrapped} annotation 
+     * in the index of the {@code JsonWrappedProcessor} visible to the class loader, 
+     * subclasses of these classes are not prewarmed unless they declare an annotation themselves.
+     * Classes that can not be loaded (e.g. outdated index) are skipped.
+     * 
+     * @return time spent in nanoseconds, including loading of the classes
+     */
+    public static long prewarm(ObjectMapper mapper, ClassLoader loader) throws JsonMappingException {
+        long start = System.nanoTime();
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (String name : WrappingIndex.typesDeclaringJsonWrapped(loader)) {
+            try {
+                types.add(Class.forName(name, false, loader));
+            } catch (ClassNotFoundException e) {
+                // skipped
+            } catch (LinkageError e) {
+                // skipped
+            }
+        }
+        SerializerPrewarmer.prewarm(mapper, types, ForkJoinPool.commonPool());
+        return System.nanoTime() - start;
     }
 
 }
@@ -0,0 +1,304 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Writes large lists as JSON array by serializing chunks of the list in parallel, 
+ * e.g. for exports of millions of (wrapped) beans.
+ * 
+ * Every chunk is serialized by the given {@link ObjectWriter} into its own byte segment,
+ * the segments are written in order, so the output is byte-identical to {@code writer.writeValue(out, list)}.
+ * At most two segments per thread of the pool are buffered at a time.
+ * Output that can not be stitched (pretty printing, wrapped root values, single element arrays written unwrapped or non-JSON formats)
+ * is written sequentially, as well as lists of types using object identity ({@code @JsonIdentityInfo} on the type 
+ * or on the declared types of its properties), whose references are only written within one serialization.
+ * Lists without random access (e.g. linked lists) are copied to an array before they are split into chunks.
+ * 
+ * Instances are immutable and thread-safe.
+ */
+public final class ParallelArrayWriter {
+    
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    
+    private final ObjectWriter writer;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final boolean stitchable;
+    private final ConcurrentHashMap<Class<?>, Boolean> identityTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+    
+    /**
+     * Uses the common {@link ForkJoinPool} and {@link #DEFAULT_CHUNK_SIZE}.
+     * 
+     * @param writer writer configured for the output (views, features, ...)
+     */
+    public ParallelArrayWriter(ObjectWriter writer) {
+        this(writer, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+    
+    private ParallelArrayWriter(ObjectWriter writer, ForkJoinPool pool, int chunkSize) {
+        if (writer == null || pool == null) {
+            throw new IllegalArgumentException("writer and pool must not be null");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        this.writer = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.stitchable = isStitchable(this.writer);
+    }
+    
+    /**
+     * @return new instance serializing the chunks in the given pool
+     */
+    public ParallelArrayWriter withPool(ForkJoinPool pool) {
+        return new ParallelArrayWriter(writer, pool, chunkSize);
+    }
+    
+    /**
+     * @return new instance serializing chunks of the given number of elements
+     */
+    public ParallelArrayWriter withChunkSize(int chunkSize) {
+        return new ParallelArrayWriter(writer, pool, chunkSize);
+    }
+    
+    /**
+     * Writes the values as JSON array, the stream is flushed but not closed.
+     */
+    public void writeValue(OutputStream out, List<?> values) throws IOException {
+        if (values.size() <= chunkSize || !stitchable) {
+            writer.writeValue(out, values);
+        } else {
+            List<?> indexed = values instanceof RandomAccess ? values : Arrays.asList(values.toArray()); // sub lists are indexed
+            if (pool.invoke(new IdentityCheck(this, indexed, 0, indexed.size()))) {
+                writer.writeValue(out, values);
+            } else {
+                writeChunks(out, indexed);
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Writes the values as JSON array, the channel is not closed.
+     */
+    public void writeValue(WritableByteChannel channel, List<?> values) throws IOException {
+        writeValue(Channels.newOutputStream(channel), values);
+    }
+    
+    /**
+     * Segments are stitched by removing the brackets of the chunks, which only works for compact JSON.
+     */
+    private static boolean isStitchable(ObjectWriter writer) {
+        if (!JsonFactory.FORMAT_NAME_JSON.equals(writer.getFactory().getFormatName())
+                || writer.isEnabled(SerializationFeature.WRAP_ROOT_VALUE) || writer.getConfig().getFullRootName() != null
+                || writer.isEnabled(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)) {
+            return false;
+        }
+        try (JsonGenerator gen = writer.createGenerator(new ByteArrayOutputStream())) { // configured like the generators of the writer
+            return gen.getPrettyPrinter() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Object ids are only known within one serialization, thus chunks would write the objects again instead of their ids.
+     * Types are introspected once per writer.
+     */
+    private boolean usesObjectIdentity(Class<?> type) {
+        Boolean uses = identityTypes.get(type);
+        if (uses == null) {
+            SerializationConfig config = writer.getConfig();
+            uses = usesObjectIdentity(config, config.constructType(type), new HashSet<JavaType>());
+            identityTypes.put(type, uses);
+        }
+        return uses;
+    }
+    
+    private static boolean usesObjectIdentity(SerializationConfig config, JavaType type, Set<JavaType> visited) {
+        if (type == null || !visited.add(type)) {
+            return false;
+        }
+        if (type.isContainerType() || type.isReferenceType()) {
+            return usesObjectIdentity(config, type.getKeyType(), visited) || usesObjectIdentity(config, type.getContentType(), visited);
+        }
+        if (type.isPrimitive() || type.isEnumType() || ClassUtil.isJDKClass(type.getRawClass())) {
+            return false;
+        }
+        BeanDescription beanDesc = config.introspect(type);
+        if (beanDesc.getObjectIdInfo() != null) {
+            return true;
+        }
+        AnnotationIntrospector introspector = config.getAnnotationIntrospector();
+        for (BeanPropertyDefinition prop : beanDesc.findProperties()) {
+            AnnotatedMember accessor = prop.getAccessor();
+            if (accessor != null && (introspector.findObjectIdInfo(accessor) != null || usesObjectIdentity(config, accessor.getType(), visited))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void writeChunks(OutputStream out, List<?> values) throws IOException {
+        int window = 2 * pool.getParallelism();
+        Deque<ChunkTask> pending = new ArrayDeque<ChunkTask>(window);
+        int segmentSize = chunkSize * 64; // adapted to the last written segment
+        boolean separate = false;
+        try {
+            out.write('[');
+            for (int from = 0; from < values.size(); from += chunkSize) {
+                if (pending.size() == window) {
+                    segmentSize = writeSegment(out, pending.removeFirst(), separate);
+                    separate = true;
+                }
+                ChunkTask task = new ChunkTask(writer, values.subList(from, Math.min(from + chunkSize, values.size())), segmentSize);
+                pool.execute(task);
+                pending.addLast(task);
+            }
+            while (!pending.isEmpty()) {
+                writeSegment(out, pending.removeFirst(), separate);
+                separate = true;
+            }
+            out.write(']');
+        } finally {
+            for (ChunkTask task : pending) { // only left on failure
+                task.cancel(false);
+            }
+        }
+    }
+    
+    /**
+     * @return size of the segment
+     */
+    private static int writeSegment(OutputStream out, ChunkTask task, boolean separate) throws IOException {
+        Segment segment;
+        try {
+            segment = task.join();
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) { // the pool may rethrow a copy
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+        if (separate) {
+            out.write(',');
+        }
+        segment.writeElementsTo(out);
+        return segment.size();
+    }
+    
+    /**
+     * Checks the element types of a range of the list for object identity, chunks are checked in parallel before any is written.
+     */
+    private static final class IdentityCheck extends RecursiveTask<Boolean> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final transient ParallelArrayWriter owner;
+        private final transient List<?> values;
+        private final int from;
+        private final int to;
+        
+        IdentityCheck(ParallelArrayWriter owner, List<?> values, int from, int to) {
+            this.owner = owner;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Boolean compute() {
+            if (to - from > owner.chunkSize) {
+                int middle = (from + to) >>> 1;
+                IdentityCheck upper = new IdentityCheck(owner, values, middle, to);
+                upper.fork();
+                return new IdentityCheck(owner, values, from, middle).compute() | upper.join();
+            }
+            Class<?> last = null;
+            for (int i = from; i < to; i++) {
+                Object value = values.get(i);
+                if (value != null && value.getClass() != last) {
+                    last = value.getClass();
+                    if (owner.usesObjectIdentity(last)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static final class ChunkTask extends RecursiveTask<Segment> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final transient ObjectWriter writer;
+        private final transient List<?> chunk;
+        private final int segmentSize;
+        
+        ChunkTask(ObjectWriter writer, List<?> chunk, int segmentSize) {
+            this.writer = writer;
+            this.chunk = chunk;
+            this.segmentSize = segmentSize;
+        }
+        
+        @Override
+        protected Segment compute() {
+            Segment segment = new Segment(segmentSize);
+            try {
+                writer.writeValue(segment, chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return segment;
+        }
+    }
+    
+    /**
+     * JSON array of a chunk, written without copying its buffer.
+     */
+    private static final class Segment extends ByteArrayOutputStream {
+        
+        Segment(int size) {
+            super(size);
+        }
+        
+        void writeElementsTo(OutputStream out) throws IOException {
+            if (count < 2 || buf[0] != '[' || buf[count - 1] != ']') {
+                throw new IllegalStateException("chunk was not written as compact JSON array");
+            }
+            out.write(buf, 1, count - 2);
+        }
+    }
+    
+}
@@ -0,0 +1,74 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.databind.ser.AnyGetterWriter;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.FilteredBeanPropertyWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper for precompiling the properties of a bean serializer or virtual object for a single {@link Projection}.
+ *
+ * Properties not selected are removed, virtual properties are replaced by copies writing only the selected
+ * properties of their virtual objects, so the properties are not matched by name per call (like a property filter).
+ */
+final class ProjectedProperties {
+
+    final BeanPropertyWriter[] props;
+    final BeanPropertyWriter[] filteredProps; // aligned with props, entries might be null, null if there are no filtered properties
+
+    private ProjectedProperties(BeanPropertyWriter[] props, BeanPropertyWriter[] filteredProps) {
+        this.props = props;
+        this.filteredProps = filteredProps;
+    }
+
+    /**
+     * @param props properties of a bean serializer
+     * @param filteredProps filtered properties of a bean serializer, aligned with props, entries might be null, might be null
+     * @param projection the projection to precompile for
+     */
+    static ProjectedProperties project(BeanPropertyWriter[] props, BeanPropertyWriter[] filteredProps, Projection projection) {
+        List<BeanPropertyWriter> included = new ArrayList<BeanPropertyWriter>(props.length);
+        List<BeanPropertyWriter> includedFiltered = new ArrayList<BeanPropertyWriter>(props.length);
+        for (int i = 0; i < props.length; i++) {
+            BeanPropertyWriter prop = props[i];
+            BeanPropertyWriter filteredProp = (filteredProps == null ? null : filteredProps[i]);
+            if (!(prop instanceof AnyGetterWriter)) { // any getters have no name to select them by
+                Projection selected = projection.select(prop.getName());
+                if (selected == null) {
+                    continue;
+                }
+                if (prop instanceof WrappingPropertyWriter && !selected.isComplete()) {
+                    WrappingPropertyWriter projectedProp = ((WrappingPropertyWriter) prop).project(selected);
+                    if (projectedProp == null) { // nothing selected inside
+                        continue;
+                    }
+                    filteredProp = projectFilteredProperty(prop, filteredProp, projectedProp);
+                    prop = projectedProp;
+                }
+            }
+            included.add(prop);
+            includedFiltered.add(filteredProp);
+        }
+        return new ProjectedProperties(included.toArray(new BeanPropertyWriter[included.size()]),
+                                       filteredProps == null ? null : includedFiltered.toArray(new BeanPropertyWriter[includedFiltered.size()]));
+    }
+
+    /**
+     * @return the filtered property of the projected virtual property, filtered by the same views
+     */
+    private static BeanPropertyWriter projectFilteredProperty(BeanPropertyWriter prop, BeanPropertyWriter filteredProp, WrappingPropertyWriter projectedProp) {
+        if (filteredProp == null) { // not included in any view
+            return null;
+        } else if (filteredProp == prop) { // not filtered at all
+            return projectedProp;
+        }
+        return FilteredBeanPropertyWriter.constructViewBased(projectedProp, projectedProp.getViews());
+    }
+
+    boolean isEmpty() {
+        return props.length == 0;
+    }
+
+}
@@ -0,0 +1,202 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.LRUMap;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sparse fieldset of wrapped beans, e.g. {@code age,name.first,address} as sent by clients of REST APIs.
+ *
+ * Paths address the properties as written, thus properties inside of virtual objects ({@link JsonWrapped}) are selected by their path,
+ * a virtual property without any selected property is omitted. Properties below a real (not virtual) property can not be selected,
+ * a path like {@code manager.name} selects the whole property {@code manager}. Unknown names are ignored.
+ * Properties written by {@code @JsonAnyGetter} have no name to select them by and are always written.
+ *
+ * A projection applies to the root value and the elements of a root array (e.g. a page of beans) of bean types,
+ * with or without virtual properties, nested beans are written completely:
+ *
+ * <pre>
+ * Projection.of(fields).applyTo(mapper.writer()).writeValue(out, bean);
+ * </pre>
+ *
+ * Beans serialized by Jackson's {@code BeanSerializer} (possibly with properties optimized by other modules) support projections.
+ * A projection does not apply to other values, they are written completely: values not serialized as beans (e.g. maps),
+ * beans with serializers of other modules or custom serializers, and values below the root level (nested beans, elements of nested arrays).
+ *
+ * The serializer of each type is compiled once per distinct projection, the compiled serializers
+ * and the parsed projections are cached in bounded LRU caches, so repeated projections cost the same as writing all properties.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class Projection {
+
+    private static final int MAX_PARSED = 1000;
+
+    private static final LRUMap<String, Projection> PARSED = new LRUMap<String, Projection>(16, MAX_PARSED);
+
+    /**
+     * Selects a property completely
+     */
+    private static final Projection COMPLETE = new Projection(null);
+
+    private final Map<String, Projection> fields; // null if complete
+    private final int hash;
+
+    private Projection(Map<String, Projection> fields) {
+        this.fields = fields;
+        this.hash = (fields == null ? 0 : fields.hashCode());
+    }
+
+    /**
+     * @param fields comma separated paths of the properties to write, names of a path separated by dots
+     * @return the parsed projection, cached by the fields
+     * @throws IllegalArgumentException if the fields are null or a path contains an empty name
+     */
+    public static Projection of(String fields) {
+        if (fields == null) {
+            throw new IllegalArgumentException("fields must not be null");
+        }
+        Projection projection = PARSED.get(fields);
+        if (projection == null) {
+            projection = parse(fields);
+            PARSED.putIfAbsent(fields, projection);
+        }
+        return projection;
+    }
+
+    /**
+     * @param writer writer configured for the output (views, features, ...)
+     * @return copy of the writer writing only the selected properties
+     */
+    public ObjectWriter applyTo(ObjectWriter writer) {
+        return writer.withAttribute(Projection.class, this);
+    }
+
+    /**
+     * @return projection of the value written next, null if there is none or the value is neither the root value nor an element of a root array
+     */
+    static Projection active(JsonGenerator gen, SerializerProvider provider) {
+        JsonStreamContext context = gen.getOutputContext();
+        if (context.inRoot() || (context.inArray() && context.getParent().inRoot())) {
+            Object projection = provider.getAttribute(Projection.class);
+            return projection instanceof Projection ? (Projection) projection : null;
+        }
+        return null;
+    }
+
+    /**
+     * @param name name of a property as written
+     * @return projection of the property, null if it is not selected
+     */
+    Projection select(String name) {
+        return fields == null ? COMPLETE : fields.get(name);
+    }
+
+    /**
+     * @return whether the property is selected completely, i.e. there are no paths below it
+     */
+    boolean isComplete() {
+        return fields == null;
+    }
+
+    private static Projection parse(String fields) {
+        Path root = new Path();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) { // e.g. trailing comma
+                continue;
+            }
+            Path path = root;
+            for (String name : field.split("\\.", -1)) {
+                name = name.trim();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("empty name in path: " + field);
+                }
+                path = path.child(name);
+                if (path.complete) { // already selected completely
+                    break;
+                }
+            }
+            path.complete = true;
+            path.children.clear();
+        }
+        return root.toProjection();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Projection)) {
+            return false;
+        }
+        Projection other = (Projection) obj;
+        return hash == other.hash && (fields == null ? other.fields == null : fields.equals(other.fields));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the selected paths in canonical (sorted) form, {@code *} for a property selected completely
+     */
+    @Override
+    public String toString() {
+        if (fields == null) {
+            return "*";
+        }
+        StringBuilder sb = new StringBuilder();
+        appendPaths(sb, "");
+        return sb.toString();
+    }
+
+    private void appendPaths(StringBuilder sb, String prefix) {
+        for (Map.Entry<String, Projection> field : fields.entrySet()) {
+            if (field.getValue().isComplete()) {
+                sb.append(sb.length() == 0 ? "" : ",").append(prefix).append(field.getKey());
+            } else {
+                field.getValue().appendPaths(sb, prefix + field.getKey() + ".");
+            }
+        }
+    }
+
+    /**
+     * Mutable path while parsing
+     */
+    private static final class Path {
+
+        private final Map<String, Path> children = new TreeMap<String, Path>();
+        private boolean complete;
+
+        private Path child(String name) {
+            Path child = children.get(name);
+            if (child == null) {
+                child = new Path();
+                children.put(name, child);
+            }
+            return child;
+        }
+
+        private Projection toProjection() {
+            if (complete) {
+                return COMPLETE;
+            }
+            Map<String, Projection> fields = new LinkedHashMap<String, Projection>();
+            for (Map.Entry<String, Path> child : children.entrySet()) {
+                fields.put(child.getKey(), child.getValue().toProjection());
+            }
+            return new Projection(Collections.unmodifiableMap(fields));
+        }
+    }
+
+}
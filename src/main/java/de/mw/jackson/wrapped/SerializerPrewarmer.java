@@ -0,0 +1,79 @@
+package de.mw.jackson.wrapped;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Eager construction of the serializers of the given types, see {@link JsonWrappedModule#prewarm(ObjectMapper, Collection)}.
+ *
+ * Each type is looked up like the root value of {@link ObjectMapper#writeValue(java.io.OutputStream, Object)},
+ * thus the serializers (including the virtual properties) are constructed, resolved and cached in the serializer cache of the mapper.
+ * Serializers are constructed in parallel, Jackson resolves them one after another while holding the lock of its serializer cache.
+ * Each serializer is published in the cache before it is resolved, so concurrent serializations may already use it while it is resolved
+ * (see {@link WrappingBeanSerializer}), unless the types are prewarmed before the first value is written.
+ */
+final class SerializerPrewarmer {
+
+    private SerializerPrewarmer() {
+    }
+
+    /**
+     * All types are prewarmed even if some of them fail, the first failure is thrown with the others suppressed.
+     *
+     * @return time spent in nanoseconds
+     */
+    static long prewarm(final ObjectMapper mapper, Collection<? extends Class<?>> types, ForkJoinPool pool) throws JsonMappingException {
+        long start = System.nanoTime();
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(types.size());
+        for (final Class<?> type : types) {
+            tasks.add(pool.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws JsonMappingException {
+                    // a new provider per task, providers are not thread-safe
+                    return mapper.getSerializerProviderInstance().findTypedValueSerializer(type, true, null);
+                }
+            }));
+        }
+
+        JsonMappingException failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                JsonMappingException cause = findMappingException(e);
+                if (cause == null) {
+                    throw e;
+                }
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The pool wraps checked exceptions and may rethrow a copy
+     */
+    private static JsonMappingException findMappingException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonMappingException) {
+                return (JsonMappingException) cause;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,373 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.ErrorReportConfiguration;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.StreamWriteConstraints;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.io.ContentReference;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generator building a {@link JsonNode} tree directly, without buffering the tokens.
+ * 
+ * Produces the same nodes as reading back the tokens of a {@link com.fasterxml.jackson.databind.util.TokenBuffer}
+ * (e.g. {@link com.fasterxml.jackson.databind.ObjectMapper#valueToTree(Object)}): 
+ * POJOs written as values are serialized by the codec (the mapper) into the tree, raw values become raw value nodes. 
+ * Raw content (not a value) is not supported.
+ */
+final class TreeBuildingGenerator extends GeneratorBase {
+    
+    private final JsonNodeFactory nodes;
+    private final boolean bigDecimalForFloats;
+    private final boolean stripTrailingZeroes;
+    private final List<ContainerNode<?>> parents = new ArrayList<ContainerNode<?>>();
+    private ContainerNode<?> current;
+    private String fieldName;
+    private JsonNode root;
+    
+    /**
+     * @param codec mapper to serialize POJOs written as values, they become POJO nodes without
+     * @param writeConstraints constraints of the factory of the mapper
+     * @param bigDecimalForFloats whether floating point numbers become decimal nodes 
+     *        ({@link com.fasterxml.jackson.databind.DeserializationFeature#USE_BIG_DECIMAL_FOR_FLOATS})
+     * @param stripTrailingZeroes whether decimal nodes are normalized 
+     *        ({@link com.fasterxml.jackson.databind.cfg.JsonNodeFeature#STRIP_TRAILING_BIGDECIMAL_ZEROES})
+     */
+    TreeBuildingGenerator(JsonNodeFactory nodes, ObjectCodec codec, StreamWriteConstraints writeConstraints, boolean bigDecimalForFloats, boolean stripTrailingZeroes) {
+        super(JsonGenerator.Feature.collectDefaults(), codec, new IOContext(StreamReadConstraints.defaults(), writeConstraints,
+                ErrorReportConfiguration.defaults(), null, ContentReference.unknown(), false)); // no buffers are used
+        this.nodes = nodes;
+        this.bigDecimalForFloats = bigDecimalForFloats;
+        this.stripTrailingZeroes = stripTrailingZeroes;
+    }
+    
+    /**
+     * @return the written value, null if nothing was written
+     */
+    JsonNode getRoot() {
+        return root;
+    }
+    
+    @Override
+    public StreamWriteConstraints streamWriteConstraints() {
+        return _ioContext.streamWriteConstraints();
+    }
+    
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+    
+    private void add(JsonNode node) {
+        if (current == null) {
+            root = node;
+        } else if (current.isObject()) {
+            ((ObjectNode) current).replace(fieldName, node);
+        } else {
+            ((ArrayNode) current).add(node);
+        }
+    }
+    
+    private void addValue(JsonNode node, String typeMsg) throws IOException {
+        _verifyValueWrite(typeMsg);
+        add(node);
+    }
+    
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+    }
+    
+    /*
+     * Structure
+     */
+    
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        start(nodes.arrayNode());
+        _writeContext = _writeContext.createChildArrayContext();
+    }
+    
+    @Override
+    public void writeStartArray(Object forValue, int size) throws IOException {
+        _verifyValueWrite("start an array");
+        start(nodes.arrayNode(size));
+        _writeContext = _writeContext.createChildArrayContext(forValue);
+    }
+    
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+        end();
+    }
+    
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        start(nodes.objectNode());
+        _writeContext = _writeContext.createChildObjectContext();
+    }
+    
+    @Override
+    public void writeStartObject(Object forValue) throws IOException {
+        _verifyValueWrite("start an object");
+        start(nodes.objectNode());
+        _writeContext = _writeContext.createChildObjectContext(forValue);
+    }
+    
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        end();
+    }
+    
+    private void start(ContainerNode<?> container) {
+        add(container);
+        if (current != null) {
+            parents.add(current);
+        }
+        current = container;
+    }
+    
+    private void end() {
+        current = parents.isEmpty() ? null : parents.remove(parents.size() - 1);
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+    
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        fieldName = name;
+    }
+    
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        writeFieldName(name.getValue());
+    }
+    
+    /*
+     * Text
+     */
+    
+    @Override
+    public void writeString(String text) throws IOException {
+        addValue(text == null ? nodes.nullNode() : nodes.textNode(text), "write a string");
+    }
+    
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+    
+    @Override
+    public void writeString(SerializableString text) throws IOException {
+        writeString(text.getValue());
+    }
+    
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, "UTF-8"));
+    }
+    
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, "UTF-8"));
+    }
+    
+    @Override
+    public void writeRaw(String text) throws IOException {
+        _reportUnsupportedOperation();
+    }
+    
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+    
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+    
+    @Override
+    public void writeRaw(char c) throws IOException {
+        _reportUnsupportedOperation();
+    }
+    
+    @Override
+    public void writeRawValue(String text) throws IOException {
+        addValue(nodes.rawValueNode(new RawValue(text)), "write raw value");
+    }
+    
+    @Override
+    public void writeRawValue(String text, int offset, int len) throws IOException {
+        writeRawValue(text.substring(offset, offset + len));
+    }
+    
+    @Override
+    public void writeRawValue(char[] text, int offset, int len) throws IOException {
+        writeRawValue(new String(text, offset, len));
+    }
+    
+    @Override
+    public void writeRawValue(SerializableString text) throws IOException {
+        addValue(nodes.rawValueNode(new RawValue(text)), "write raw value");
+    }
+    
+    @Override
+    public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
+        addValue(nodes.binaryNode(Arrays.copyOfRange(data, offset, offset + len)), "write a binary value");
+    }
+    
+    /*
+     * Primitives
+     */
+    
+    @Override
+    public void writeNumber(short v) throws IOException {
+        addValue(nodes.numberNode((int) v), "write a number"); // as read back from tokens
+    }
+    
+    @Override
+    public void writeNumber(int v) throws IOException {
+        addValue(nodes.numberNode(v), "write a number");
+    }
+    
+    @Override
+    public void writeNumber(long v) throws IOException {
+        addValue(nodes.numberNode(v), "write a number");
+    }
+    
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        addValue(v == null ? nodes.nullNode() : nodes.numberNode(v), "write a number");
+    }
+    
+    @Override
+    public void writeNumber(double v) throws IOException {
+        if (bigDecimalForFloats && !Double.isNaN(v) && !Double.isInfinite(v)) {
+            writeNumber(BigDecimal.valueOf(v));
+        } else {
+            addValue(nodes.numberNode(v), "write a number");
+        }
+    }
+    
+    @Override
+    public void writeNumber(float v) throws IOException {
+        if (bigDecimalForFloats) {
+            writeNumber((double) v);
+        } else {
+            addValue(nodes.numberNode(v), "write a number");
+        }
+    }
+    
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (v != null && stripTrailingZeroes) {
+            try {
+                v = v.stripTrailingZeros();
+            } catch (ArithmeticException e) { // overflow of the scale, keep as is
+            }
+        }
+        addValue(v == null ? nodes.nullNode() : nodes.numberNode(v), "write a number");
+    }
+    
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        if (encodedValue == null) {
+            writeNull();
+        } else {
+            writeNumber(new BigDecimal(encodedValue));
+        }
+    }
+    
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        addValue(nodes.booleanNode(state), "write a boolean value");
+    }
+    
+    @Override
+    public void writeNull() throws IOException {
+        addValue(nodes.nullNode(), "write a null");
+    }
+    
+    /*
+     * POJOs and trees
+     */
+    
+    @Override
+    public void writeObject(Object value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else if (value instanceof JsonNode) {
+            addValue((JsonNode) value, "write a tree");
+        } else if (value instanceof byte[]) {
+            addValue(nodes.binaryNode((byte[]) value), "write a binary value");
+        } else if (value instanceof RawValue) {
+            addValue(nodes.rawValueNode((RawValue) value), "write raw value");
+        } else if (_objectCodec != null) { // like the TokenBuffer
+            _objectCodec.writeValue(this, value);
+        } else {
+            addValue(nodes.pojoNode(value), "write a POJO");
+        }
+    }
+    
+    @Override
+    public void writeEmbeddedObject(Object object) throws IOException {
+        if (object == null || object instanceof JsonNode || object instanceof byte[] || object instanceof RawValue) {
+            writeObject(object);
+        } else { // not serialized, like embedded objects of the TokenBuffer
+            addValue(nodes.pojoNode(object), "write an embedded object");
+        }
+    }
+    
+    @Override
+    public void writeTree(TreeNode rootNode) throws IOException {
+        if (rootNode != null && !(rootNode instanceof JsonNode)) {
+            throw new IllegalStateException("Can only write JsonNode trees, not " + rootNode.getClass().getName());
+        }
+        writeObject(rootNode);
+    }
+    
+    /*
+     * Output
+     */
+    
+    @Override
+    public void flush() {
+    }
+    
+    @Override
+    protected void _releaseBuffers() {
+    }
+    
+}
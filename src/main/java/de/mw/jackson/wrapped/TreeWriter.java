@@ -0,0 +1,82 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.StreamWriteConstraints;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.DatatypeFeatures;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+
+/**
+ * Converts values (e.g. wrapped beans) to {@link JsonNode} trees by serializing them directly into the nodes,
+ * instead of buffering all tokens and reading them back like {@link ObjectMapper#valueToTree(Object)}.
+ * 
+ * The trees are equal to those of {@link ObjectMapper#convertValue(Object, Class)} to {@link JsonNode} types,
+ * root values are not wrapped ({@link SerializationFeature#WRAP_ROOT_VALUE}) unless the given writer enables it.
+ * 
+ * Instances are immutable and thread-safe.
+ */
+public final class TreeWriter {
+    
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final JsonNodeFactory nodes;
+    private final StreamWriteConstraints writeConstraints;
+    private final boolean bigDecimalForFloats;
+    private final boolean stripTrailingZeroes;
+    
+    /**
+     * @param mapper mapper to serialize the values (without {@link SerializationFeature#WRAP_ROOT_VALUE}) and to create the nodes
+     */
+    public TreeWriter(ObjectMapper mapper) {
+        this(mapper, mapper.writer().without(SerializationFeature.WRAP_ROOT_VALUE));
+    }
+    
+    /**
+     * @param mapper mapper to create the nodes as configured for reading trees and to serialize POJOs written by {@link com.fasterxml.jackson.core.JsonGenerator#writeObject(Object)}
+     * @param writer writer configured for the output (views, features, ...), typically created by the mapper
+     */
+    public TreeWriter(ObjectMapper mapper, ObjectWriter writer) {
+        if (mapper == null || writer == null) {
+            throw new IllegalArgumentException("mapper and writer must not be null");
+        }
+        this.mapper = mapper;
+        this.writer = writer;
+        this.nodes = mapper.getNodeFactory();
+        this.writeConstraints = mapper.getFactory().streamWriteConstraints();
+        
+        DeserializationConfig config = mapper.getDeserializationConfig(); // number handling as by the JsonNodeDeserializer
+        DatatypeFeatures features = config.getDatatypeFeatures();
+        Boolean bigDecimal = features.getExplicitState(JsonNodeFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.bigDecimalForFloats = bigDecimal != null ? bigDecimal.booleanValue() : config.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.stripTrailingZeroes = features.isExplicitlySet(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES) 
+                                        ? features.isEnabled(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES) 
+                                        : nodes.willStripTrailingBigDecimalZeroes();
+    }
+    
+    /**
+     * @param value value to convert, might be null
+     * @return tree of the value, a null node for null
+     * @throws IllegalArgumentException if the value can not be serialized
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends JsonNode> T valueToTree(Object value) throws IllegalArgumentException {
+        if (value == null) {
+            return (T) nodes.nullNode();
+        }
+        TreeBuildingGenerator gen = new TreeBuildingGenerator(nodes, mapper, writeConstraints, bigDecimalForFloats, stripTrailingZeroes);
+        try {
+            writer.writeValue(gen, value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return (T) gen.getRoot();
+    }
+    
+}
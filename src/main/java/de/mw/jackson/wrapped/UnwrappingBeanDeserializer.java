@@ -0,0 +1,55 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializer of a bean containing virtual properties, reads the properties inside the virtual objects
+ * by passing an {@link UnwrappingParser} to the original deserializer.
+ *
+ * As the original deserializer sees the plain properties, creators, builders and updating of existing instances
+ * work as without virtual properties.
+ */
+class UnwrappingBeanDeserializer extends DelegatingDeserializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final VirtualPropertyTree virtualProperties;
+
+    UnwrappingBeanDeserializer(JsonDeserializer<?> deserializer, VirtualPropertyTree virtualProperties) {
+        super(deserializer);
+        this.virtualProperties = virtualProperties;
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+        return new UnwrappingBeanDeserializer(newDelegatee, virtualProperties);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return _delegatee.deserialize(unwrapping(p), ctxt);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt, Object intoValue) throws IOException {
+        return ((JsonDeserializer<Object>) _delegatee).deserialize(unwrapping(p), ctxt, intoValue);
+    }
+
+    /**
+     * Only objects contain virtual properties, other shapes (e.g. delegating creators) are passed as they are
+     */
+    private JsonParser unwrapping(JsonParser p) throws IOException {
+        if (p.hasToken(JsonToken.START_OBJECT) || p.hasToken(JsonToken.FIELD_NAME)) {
+            return new UnwrappingParser(p, virtualProperties).unwrapCurrentToken();
+        }
+        return p;
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parser that hides the virtual objects of a bean, so the properties inside them appear as properties of the bean itself.
+ *
+ * The start of the virtual object (field name and start object) and its end are skipped while streaming,
+ * nothing is buffered. Only the level of the bean is unwrapped, values of properties are passed as they are.
+ * Must be created when the parser points to the start of the bean object or to a field name of the bean.
+ */
+class UnwrappingParser extends JsonParserDelegate {
+
+    private final VirtualPropertyTree virtualProperties;
+    private final Deque<VirtualPropertyTree> openVirtualObjects = new ArrayDeque<VirtualPropertyTree>();
+    private int depth; // open objects and arrays inside the bean, not counting virtual objects
+
+    UnwrappingParser(JsonParser parser, VirtualPropertyTree virtualProperties) {
+        super(parser);
+        this.virtualProperties = virtualProperties;
+    }
+
+    /**
+     * Skips the virtual objects the parser is pointing to, for field names of the bean passed by the caller
+     */
+    JsonParser unwrapCurrentToken() throws IOException {
+        if (delegate.hasToken(JsonToken.FIELD_NAME)) {
+            unwrap(JsonToken.FIELD_NAME);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = unwrap(delegate.nextToken());
+        if (token != null) {
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            token = nextToken();
+        }
+        return token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if (delegate.hasToken(JsonToken.START_OBJECT) || delegate.hasToken(JsonToken.START_ARRAY)) {
+            delegate.skipChildren();
+            depth--; // skipped to the end of the structure
+        }
+        return this;
+    }
+
+    private JsonToken unwrap(JsonToken token) throws IOException {
+        while (depth == 0) {
+            VirtualPropertyTree current = (openVirtualObjects.isEmpty() ? virtualProperties : openVirtualObjects.peek());
+            if (token == JsonToken.FIELD_NAME) {
+                VirtualPropertyTree virtualProperty = current.get(delegate.currentName());
+                if (virtualProperty == null) {
+                    return token;
+                }
+                JsonToken value = delegate.nextToken();
+                if (value == JsonToken.START_OBJECT) {
+                    openVirtualObjects.push(virtualProperty);
+                } else if (value != JsonToken.VALUE_NULL) { // null: virtual object without properties
+                    throw MismatchedInputException.from(delegate, (Class<?>) null,
+                            String.format("Unexpected token (%s) for virtual property '%s', expected START_OBJECT", value, delegate.currentName()));
+                }
+                token = delegate.nextToken();
+            } else if (token == JsonToken.END_OBJECT && !openVirtualObjects.isEmpty()) {
+                openVirtualObjects.pop();
+                token = delegate.nextToken();
+            } else {
+                return token;
+            }
+        }
+        return token;
+    }
+
+}
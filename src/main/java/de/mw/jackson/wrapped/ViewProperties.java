@@ -0,0 +1,62 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper for precompiling the properties of a bean serializer for a single active view.
+ * 
+ * Jackson checks the active view per property and call (filtered properties).
+ * The properties returned here are the unfiltered ones that are included in the view,
+ * thus excluded properties are never visited again.
+ */
+final class ViewProperties {
+    
+    private ViewProperties() {}
+    
+    /**
+     * @param props properties of a bean serializer
+     * @param filteredProps filtered properties of a bean serializer, aligned with props, entries might be null
+     * @param activeView the view to precompile for
+     */
+    static BeanPropertyWriter[] forView(BeanPropertyWriter[] props, BeanPropertyWriter[] filteredProps, Class<?> activeView) {
+        List<BeanPropertyWriter> included = new ArrayList<BeanPropertyWriter>(props.length);
+        for (int i = 0; i < props.length; i++) {
+            BeanPropertyWriter filteredProp = filteredProps[i];
+            if (filteredProp != null && isIncluded(filteredProp.getViews(), activeView)) {
+                included.add(props[i]);
+            }
+        }
+        return included.toArray(new BeanPropertyWriter[included.size()]);
+    }
+    
+    /**
+     * Like {@link #forView(BeanPropertyWriter[], BeanPropertyWriter[], Class)}, but also removes virtual properties
+     * without any property included in the view, as a {@link Projection} may select only properties excluded from the view.
+     */
+    static BeanPropertyWriter[] forProjectedView(BeanPropertyWriter[] props, BeanPropertyWriter[] filteredProps, Class<?> activeView) {
+        BeanPropertyWriter[] inView = forView(props, filteredProps, activeView);
+        List<BeanPropertyWriter> included = new ArrayList<BeanPropertyWriter>(inView.length);
+        for (BeanPropertyWriter prop : inView) {
+            if (!(prop instanceof WrappingPropertyWriter) || !((WrappingPropertyWriter) prop).isEmptyInView(activeView)) {
+                included.add(prop);
+            }
+        }
+        return included.toArray(new BeanPropertyWriter[included.size()]);
+    }
+    
+    private static boolean isIncluded(Class<?>[] views, Class<?> activeView) {
+        if (views == null) { // not filtered at all
+            return true;
+        }
+        for (Class<?> view : views) { // same as FilteredBeanPropertyWriter
+            if (view.isAssignableFrom(activeView)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,311 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo.As;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrapper;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerBuilder;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serializer for the "virtual bean" of a virtual property ({@link WrappingPropertyWriter}).
+ *
+ * In contrast to a full {@link BeanSerializer} it knows that there is no object id, type id or shape to handle,
+ * it simply writes the wrapped properties of the original bean as JSON object.
+ * If there are filtered properties (views), the properties included in the active view are precompiled
+ * and cached per view.
+ * Nested virtual properties (dotted paths) are properties of this serializer, writing the same bean.
+ * It also decides whether the virtual object would be empty ({@link JsonWrapped#omitIfEmpty()}).
+ * If every property is written exactly once, the number of fields is passed to the generator
+ * (e.g. CBOR writes a map of definite length instead of an indefinite one).
+ * Copies for a {@link Projection} are created by the {@link WrappingBeanSerializer} owning the virtual property.
+ *
+ * It is a subclass of {@link BeanSerializer} only to reuse the resolution of the property serializers,
+ * do not use it as serializer for a real bean.
+ */
+class VirtualObjectSerializer extends BeanSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int UNKNOWN_SIZE = -1;
+
+    private final WrappingPropertyWriter[] wrappingProps;
+    private final ConcurrentMap<Class<?>, Contents> viewContents = new ConcurrentHashMap<Class<?>, Contents>();
+    private final Contents filteredContents; // null if there are no filtered properties
+    private final boolean projected;
+    private volatile Contents contents; // size determined by resolve, might be used by other threads before
+    private volatile boolean resolved; // contents of views are cached once the properties are complete
+
+    VirtualObjectSerializer(JavaType type, BeanSerializerBuilder builder,
+                            BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties,
+                            WrappingPropertyWriter[] wrappingProps) {
+
+        super(type, builder, properties, filteredProperties);
+        this.wrappingProps = wrappingProps;
+        this.contents = new Contents(_props, UNKNOWN_SIZE);
+        this.filteredContents = (_filteredProps == null ? null : new Contents(_filteredProps, UNKNOWN_SIZE));
+        this.projected = false;
+    }
+
+    /**
+     * Copy for a projection of the source, its size is only known once the source is resolved
+     */
+    private VirtualObjectSerializer(VirtualObjectSerializer src, ProjectedProperties projected) {
+        super(src, projected.props, projected.filteredProps);
+        this.wrappingProps = src.wrappingProps;
+        this.contents = new Contents(_props, src.resolved ? sizeOf(_props) : UNKNOWN_SIZE);
+        this.filteredContents = (_filteredProps == null ? null : new Contents(_filteredProps, UNKNOWN_SIZE));
+        this.projected = true;
+        this.resolved = src.resolved;
+    }
+
+    /**
+     * Resolves the property serializers and the hidden serializers of nested virtual properties
+     */
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        super.resolve(provider);
+        for (WrappingPropertyWriter wrappingProp : wrappingProps) {
+            wrappingProp.resolve(provider);
+        }
+        contents = new Contents(_props, sizeOf(_props)); // the properties are complete after resolution
+        resolved = true;
+    }
+
+    @Override
+    public void serialize(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Contents contents = contents(gen, provider);
+        if (contents.size == UNKNOWN_SIZE) {
+            gen.writeStartObject(bean);
+        } else {
+            gen.writeStartObject(bean, contents.size);
+        }
+        writeProperties(bean, contents.props, gen, provider);
+        gen.writeEndObject();
+    }
+
+    /**
+     * @param projection projection of the virtual property, not complete
+     * @return copy writing only the selected properties, null if none of the properties is selected
+     */
+    VirtualObjectSerializer project(Projection projection) {
+        ProjectedProperties projected = ProjectedProperties.project(_props, _filteredProps, projection);
+        return projected.isEmpty() ? null : new VirtualObjectSerializer(this, projected);
+    }
+
+    /**
+     * Describes the wrapped properties as anonymous object, the declared type of the virtual property ({@link Object})
+     * is not passed on, otherwise schema generators would treat all virtual properties as the same type.
+     */
+    @Override
+    public void acceptJsonFormatVisitor(JsonFormatVisitorWrapper visitor, JavaType typeHint) throws JsonMappingException {
+        super.acceptJsonFormatVisitor(visitor, null);
+    }
+
+    /**
+     * Checks if the virtual object would be empty, i.e. none of the wrapped properties would be written,
+     * by running the inclusion rules of the wrapped properties against a {@link EmptinessProbe}.
+     * Stops at the first written property, nothing is written to the generator or buffered.
+     */
+    boolean isEmpty(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (gen instanceof EmptinessProbe) { // nested virtual property, already probing
+            return isEmptyProbed(bean, gen, provider);
+        }
+        EmptinessProbe probe = EmptinessProbe.acquire(gen);
+        try {
+            return isEmptyProbed(bean, probe, provider);
+        } finally {
+            probe.release();
+        }
+    }
+
+    private boolean isEmptyProbed(Object bean, JsonGenerator probe, SerializerProvider provider) throws IOException {
+        try {
+            writeProperties(bean, contents(probe, provider).props, probe, provider);
+            return true;
+        } catch (EmptinessProbe.NotEmpty e) {
+            return false;
+        }
+    }
+
+    Object getFilterId() {
+        return _propertyFilterId;
+    }
+
+    /**
+     * @return filtered properties aligned with the properties, null if there are none
+     */
+    BeanPropertyWriter[] getFilteredProperties() {
+        return _filteredProps;
+    }
+
+    /**
+     * @return whether none of the properties is included in the view
+     */
+    boolean isEmptyInView(Class<?> activeView) {
+        return _filteredProps != null && contentsForView(activeView).props.length == 0;
+    }
+
+    private Contents contents(JsonGenerator gen, SerializerProvider provider) {
+        final Class<?> activeView = (_filteredProps == null ? null : provider.getActiveView());
+        if (activeView == null) {
+            return contents;
+        } else if (gen.canOmitFields()) {
+            return contentsForView(activeView);
+        } else { // let the filtered properties write omitted fields
+            return filteredContents;
+        }
+    }
+
+    private Contents contentsForView(Class<?> activeView) {
+        Contents contents = viewContents.get(activeView);
+        if (contents == null) {
+            BeanPropertyWriter[] props = (projected ? ViewProperties.forProjectedView(_props, _filteredProps, activeView)
+                                                    : ViewProperties.forView(_props, _filteredProps, activeView));
+            if (!resolved) { // the properties may still be replaced by the resolution
+                return new Contents(props, UNKNOWN_SIZE);
+            }
+            contents = new Contents(props, sizeOf(props));
+            Contents existing = viewContents.putIfAbsent(activeView, contents);
+            if (existing != null) {
+                contents = existing;
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * @return number of fields written for the properties, {@link #UNKNOWN_SIZE} unless every property writes exactly one field
+     */
+    private int sizeOf(BeanPropertyWriter[] props) {
+        if (_propertyFilterId != null) {
+            return UNKNOWN_SIZE;
+        }
+        int size = 0;
+        for (BeanPropertyWriter prop : props) {
+            if (prop != null) {
+                if (!isAlwaysWritten(prop)) {
+                    return UNKNOWN_SIZE;
+                }
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Only properties known to write a single field without conditions, other subclasses of {@link BeanPropertyWriter}
+     * (e.g. unwrapping or optimized by other modules) may write no or several fields.
+     */
+    private static boolean isAlwaysWritten(BeanPropertyWriter prop) {
+        if (prop instanceof WrappingPropertyWriter) {
+            return !((WrappingPropertyWriter) prop).isOmitIfEmpty();
+        }
+        return prop.getClass() == BeanPropertyWriter.class && new InclusionOf(prop).isAlwaysIncluded()
+                && (prop.getTypeSerializer() == null || prop.getTypeSerializer().getTypeInclusion() != As.EXTERNAL_PROPERTY);
+    }
+
+    private void writeProperties(Object bean, BeanPropertyWriter[] props, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (_propertyFilterId != null) {
+            writeFilteredProperties(bean, props, gen, provider);
+            return;
+        }
+        writeUnfilteredProperties(bean, props, gen, provider);
+    }
+
+    private void writeUnfilteredProperties(Object bean, BeanPropertyWriter[] props, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        int i = 0;
+        try {
+            for (final int len = props.length; i < len; ++i) {
+                BeanPropertyWriter prop = props[i];
+                if (prop != null) { // can have nulls in filtered list
+                    prop.serializeAsField(bean, gen, provider);
+                }
+            }
+        } catch (Exception e) {
+            wrapAndThrow(provider, e, bean, props[i].getName());
+        } catch (StackOverflowError e) {
+            throw infiniteRecursion(gen, e, bean, props[i].getName());
+        }
+    }
+
+    private void writeFilteredProperties(Object bean, BeanPropertyWriter[] props, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        final PropertyFilter filter = findPropertyFilter(provider, _propertyFilterId, bean);
+        if (filter == null) { // missing filter is allowed
+            writeUnfilteredProperties(bean, props, gen, provider);
+            return;
+        }
+
+        int i = 0;
+        try {
+            for (final int len = props.length; i < len; ++i) {
+                BeanPropertyWriter prop = props[i];
+                if (prop != null) { // can have nulls in filtered list
+                    filter.serializeAsField(bean, gen, provider, prop);
+                }
+            }
+        } catch (Exception e) {
+            wrapAndThrow(provider, e, bean, props[i].getName());
+        } catch (StackOverflowError e) {
+            throw infiniteRecursion(gen, e, bean, props[i].getName());
+        }
+    }
+
+    private static DatabindException infiniteRecursion(JsonGenerator gen, StackOverflowError e, Object bean, String name) {
+        // same as BeanSerializerBase, avoid deep call stacks as the stack is almost exhausted
+        DatabindException mapE = new JsonMappingException(gen, "Infinite recursion (StackOverflowError)", e);
+        mapE.prependPath(bean, name);
+        return mapE;
+    }
+
+    /**
+     * Properties to write and the number of written fields.
+     */
+    private static final class Contents {
+
+        final BeanPropertyWriter[] props;
+        final int size;
+
+        Contents(BeanPropertyWriter[] props, int size) {
+            this.props = props;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Copy of a property for reading its protected inclusion settings.
+     */
+    static final class InclusionOf extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        InclusionOf(BeanPropertyWriter prop) {
+            super(prop);
+        }
+
+        /**
+         * @return whether neither null nor any other value is suppressed ({@link com.fasterxml.jackson.annotation.JsonInclude})
+         */
+        boolean isAlwaysIncluded() {
+            return !_suppressNulls && _suppressableValue == null;
+        }
+
+        boolean suppressNulls() {
+            return _suppressNulls;
+        }
+
+        Object suppressableValue() {
+            return _suppressableValue;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Names of the virtual properties of a type, nested virtual properties (paths) as children.
+ *
+ * Used for deserialization, where the content of all virtual objects is moved back to the bean,
+ * so it is not necessary to know which property belongs to which virtual property.
+ */
+final class VirtualPropertyTree {
+
+    private final Map<String, VirtualPropertyTree> children = new HashMap<String, VirtualPropertyTree>();
+
+    private VirtualPropertyTree() {
+    }
+
+    /**
+     * Collects the virtual properties of all {@link JsonWrapped} annotations of the type (including mix-ins)
+     * and of the rules of the module.
+     * 
+     * @param rules compiled rules of the type, might be null
+     */
+    static VirtualPropertyTree of(AnnotatedClass type, WrappingPlan.TypeLevel rules) {
+        VirtualPropertyTree tree = new VirtualPropertyTree();
+        if (rules != null) {
+            for (String path : rules.getVirtualProperties()) {
+                tree.add(path);
+            }
+        }
+        JsonWrapped typeLevel = type.getAnnotation(JsonWrapped.class);
+        if (typeLevel != null && typeLevel.properties().length > 0) {
+            tree.add(typeLevel);
+        }
+        for (AnnotatedField field : type.fields()) {
+            tree.add(field);
+        }
+        for (AnnotatedMethod method : type.memberMethods()) {
+            tree.add(method);
+        }
+        return tree;
+    }
+
+    private void add(Annotated annotated) {
+        JsonWrapped annotation = annotated.getAnnotation(JsonWrapped.class);
+        if (annotation != null) {
+            add(annotation);
+        }
+    }
+
+    private void add(JsonWrapped annotation) {
+        String path = WrappingPlan.virtualPropertyPath(annotation.value());
+        if (path != null) {
+            add(path);
+        }
+    }
+
+    /**
+     * @param path normalized path of a virtual property
+     */
+    private void add(String path) {
+        VirtualPropertyTree level = this;
+        for (String name : path.split("\\.")) {
+            VirtualPropertyTree child = level.children.get(name);
+            if (child == null) {
+                child = new VirtualPropertyTree();
+                level.children.put(name, child);
+            }
+            level = child;
+        }
+    }
+
+    /**
+     * @return the nested virtual property, null if there is no virtual property with that name
+     */
+    VirtualPropertyTree get(String name) {
+        return children.get(name);
+    }
+
+    boolean isEmpty() {
+        return children.isEmpty();
+    }
+
+}
@@ -0,0 +1,198 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerBuilder;
+import com.fasterxml.jackson.databind.ser.impl.ObjectIdWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.util.LRUMap;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link BeanSerializer} of a bean containing virtual properties ({@link WrappingPropertyWriter}),
+ * or of a plain bean (without virtual properties) to apply {@link Projection}s.
+ *
+ * The serializers of the virtual properties are hidden from Jackson, thus they are resolved
+ * together with this serializer. Jackson resolves serializers exactly once while holding
+ * the lock of its serializer cache, but it publishes them in the cache before, and readers do not take the lock.
+ * So other threads may use this serializer while it is resolved: properties without resolved serializer look them up dynamically,
+ * and copies for views and projections are only cached once the properties are complete.
+ *
+ * If the bean has filtered properties (views), a specialized copy of this serializer is created and cached
+ * for each active view, containing only the properties and virtual properties included in that view.
+ * The same way a copy is compiled for each active {@link Projection}, cached in a bounded LRU cache.
+ */
+class WrappingBeanSerializer extends BeanSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_PROJECTIONS = 100;
+
+    private final WrappingPropertyWriter[] wrappingProps;
+    private final ConcurrentMap<Class<?>, WrappingBeanSerializer> viewSerializers = new ConcurrentHashMap<Class<?>, WrappingBeanSerializer>();
+    private final Projection projection; // null unless this is the copy for a projection
+    private volatile LRUMap<Projection, WrappingBeanSerializer> projectionSerializers; // created by the first projection
+    private volatile boolean resolved; // copies of this serializer are taken from resolved properties
+
+    WrappingBeanSerializer(JavaType type, BeanSerializerBuilder builder,
+                           BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties,
+                           WrappingPropertyWriter[] wrappingProps) {
+
+        super(type, builder, properties, filteredProperties);
+        this.wrappingProps = wrappingProps;
+        this.projection = null;
+    }
+
+    private WrappingBeanSerializer(WrappingBeanSerializer src, ObjectIdWriter objectIdWriter, Object filterId) {
+        super(src, objectIdWriter, filterId);
+        this.wrappingProps = src.wrappingProps;
+        this.projection = src.projection;
+        this.resolved = src.resolved;
+    }
+
+    private WrappingBeanSerializer(WrappingBeanSerializer src, Set<String> toIgnore, Set<String> toInclude) {
+        super(src, toIgnore, toInclude);
+        this.wrappingProps = src.wrappingProps;
+        this.projection = src.projection;
+        this.resolved = src.resolved;
+    }
+
+    private WrappingBeanSerializer(WrappingBeanSerializer src, BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties) {
+        super(src, properties, filteredProperties);
+        this.wrappingProps = src.wrappingProps;
+        this.projection = src.projection;
+        this.resolved = src.resolved;
+    }
+
+    private WrappingBeanSerializer(WrappingBeanSerializer src, ProjectedProperties projected, Projection projection) {
+        super(src, projected.props, projected.filteredProps);
+        this.wrappingProps = src.wrappingProps;
+        this.projection = projection;
+        this.resolved = src.resolved;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        super.resolve(provider);
+        for (WrappingPropertyWriter wrappingProp : wrappingProps) {
+            wrappingProp.resolve(provider);
+        }
+        resolved = true;
+    }
+
+    @Override
+    public void serialize(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        WrappingBeanSerializer projected = forProjection(gen, provider);
+        if (projected != null) {
+            projected.serialize(bean, gen, provider);
+            return;
+        }
+        Class<?> activeView = (_filteredProps == null ? null : provider.getActiveView());
+        if (activeView != null && gen.canOmitFields()) {
+            forView(activeView).serialize(bean, gen, provider);
+        } else {
+            super.serialize(bean, gen, provider);
+        }
+    }
+
+    @Override
+    public void serializeWithType(Object bean, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        WrappingBeanSerializer projected = forProjection(gen, provider);
+        if (projected != null) {
+            projected.serializeWithType(bean, gen, provider, typeSer);
+            return;
+        }
+        Class<?> activeView = (_filteredProps == null ? null : provider.getActiveView());
+        if (activeView != null && gen.canOmitFields()) {
+            forView(activeView).serializeWithType(bean, gen, provider, typeSer);
+        } else {
+            super.serializeWithType(bean, gen, provider, typeSer);
+        }
+    }
+
+    private WrappingBeanSerializer forView(Class<?> activeView) {
+        WrappingBeanSerializer serializer = viewSerializers.get(activeView);
+        if (serializer == null) {
+            BeanPropertyWriter[] props = (projection != null ? ViewProperties.forProjectedView(_props, _filteredProps, activeView)
+                                                             : ViewProperties.forView(_props, _filteredProps, activeView));
+            serializer = new WrappingBeanSerializer(this, props, null);
+            if (!resolved) { // the properties may still be replaced by the resolution
+                return serializer;
+            }
+            WrappingBeanSerializer existing = viewSerializers.putIfAbsent(activeView, serializer);
+            if (existing != null) {
+                serializer = existing;
+            }
+        }
+        return serializer;
+    }
+
+    /**
+     * @return copy for the active projection, null if there is none or this is already a projected copy
+     */
+    private WrappingBeanSerializer forProjection(JsonGenerator gen, SerializerProvider provider) {
+        Projection activeProjection = (projection == null ? Projection.active(gen, provider) : null);
+        if (activeProjection == null) {
+            return null;
+        }
+        LRUMap<Projection, WrappingBeanSerializer> serializers = projectionSerializers;
+        if (serializers == null) {
+            synchronized (this) {
+                serializers = projectionSerializers;
+                if (serializers == null) {
+                    serializers = new LRUMap<Projection, WrappingBeanSerializer>(4, MAX_PROJECTIONS);
+                    projectionSerializers = serializers;
+                }
+            }
+        }
+        WrappingBeanSerializer serializer = serializers.get(activeProjection);
+        if (serializer == null) {
+            serializer = new WrappingBeanSerializer(this, ProjectedProperties.project(_props, _filteredProps, activeProjection), activeProjection);
+            if (!resolved) { // the properties may still be replaced by the resolution
+                return serializer;
+            }
+            WrappingBeanSerializer existing = serializers.putIfAbsent(activeProjection, serializer);
+            if (existing != null) {
+                serializer = existing;
+            }
+        }
+        return serializer;
+    }
+
+    // keep this type for contextual copies
+
+    @Override
+    public BeanSerializerBase withObjectIdWriter(ObjectIdWriter objectIdWriter) {
+        return new WrappingBeanSerializer(this, objectIdWriter, _propertyFilterId);
+    }
+
+    @Override
+    public BeanSerializerBase withFilterId(Object filterId) {
+        return new WrappingBeanSerializer(this, _objectIdWriter, filterId);
+    }
+
+    @Override
+    protected BeanSerializerBase withByNameInclusion(Set<String> toIgnore, Set<String> toInclude) {
+        return new WrappingBeanSerializer(this, toIgnore, toInclude);
+    }
+
+    @Override
+    protected BeanSerializerBase withProperties(BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties) {
+        return new WrappingBeanSerializer(this, properties, filteredProperties);
+    }
+
+    @Override
+    public BeanSerializer withIgnoredProperties(Set<String> toIgnore) {
+        return new WrappingBeanSerializer(this, toIgnore, null);
+    }
+
+}
@@ -15,6 +15,7 @@ import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.BeanSerializer;
 import com.fasterxml.jackson.databind.ser.BeanSerializerBuilder;
 import com.fasterxml.jackson.databind.ser.impl.FilteredBeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
 import com.fasterxml.jackson.databind.util.SimpleBeanPropertyDefinition;
 
 import java.util.ArrayList;
@@ -32,61 +33,69 @@ import java.util.Set;
  * 
  * This works by analyzing the properties ({@link BeanPropertyWriter}) of the existing {@link BeanSerializer}.
  * If a property that should be wrapped is detected it will be grouped with others into a virtual property {@link WrappingPropertyWriter}
- * which is in fact a wrapper for a new {@link BeanSerializer} of a "virtual bean" (matching the original type).
+ * which is in fact a wrapper for a {@link VirtualObjectSerializer} of a "virtual bean" (matching the original type).
  * The existing properties ({@link BeanPropertyWriter}) will be moved to the "virtual bean".
  *
  * As a result a copy of the original {@link BeanSerializer} will created containing only the non-wrapped properties
  * and the new virtual properties (BeanSerializer is immutable).
  * 
+ * The original serializer may be any {@link BeanSerializerBase}, e.g. the result of another modifier,
+ * its properties are moved as they are, including optimized accessors (e.g. of Blackbird or Afterburner).
+ * 
  * Unfortunately it is not possible to access all required data about the original {@link BeanSerializer} from outside.
  * Thus this class is a subclass of it. Do not use the builder instance for serialization.
  */
 class WrappingBeanSerializerBuilder extends BeanSerializer {
     
-    WrappingBeanSerializerBuilder(BeanSerializer src) {
+    private final JsonWrappedListener listener;
+    private final WrappingInterner interner;
+    
+    /**
+     * @param listener if not null, the virtual properties report to it
+     * @param interner shares identical virtual properties with other bean serializers
+     */
+    WrappingBeanSerializerBuilder(BeanSerializerBase src, JsonWrappedListener listener, WrappingInterner interner) {
         super(src);
+        this.listener = listener;
+        this.interner = interner;
     }   
     
-    boolean needsWrapping(BeanDescription beanDesc) {
-        // type level
-        if (beanDesc.getClassInfo() != null && beanDesc.getClassInfo().getAnnotation(JsonWrapped.class) != null) {
-            return true;
-        }
-        
-        // anyGetter
-        if (beanDesc.findAnyGetter() != null && beanDesc.findAnyGetter().getAnnotation(JsonWrapped.class) != null) {
-            return true;
-        }
-        
-        // property level - non filtered
+    /**
+     * Analyzes and wraps the properties in a single pass.
+     * 
+     * @param typeLevel type level configuration (annotation or rules), might be null
+     * @return the new serializer, null if no property needs to be wrapped
+     */
+    BeanSerializer withWrappedProperties(MapperConfig<?> config, BeanDescription beanDesc, WrappingPlan.TypeLevel typeLevel) {
+        AnyGetterWriter anyGetterWriter = null;
         for (BeanPropertyWriter writer : _props) {
-            if (writer != null && writer.getAnnotation(JsonWrapped.class) != null) {
-                return true;
+            if (writer instanceof AnyGetterWriter) {
+                anyGetterWriter = (AnyGetterWriter) writer;
             }
         }
-        
-        // property level - filtered
-        if (_filteredProps != null) {
-            for (BeanPropertyWriter writer : _filteredProps) {
-                if (writer != null && writer.getAnnotation(JsonWrapped.class) != null) {
-                    return true;
-                }
-            }
+
+        PropInfo remainingProps = wrapProperties(_props, _filteredProps, anyGetterWriter, config, beanDesc, typeLevel);
+        if (remainingProps.wrappingProps.isEmpty()) {
+            return null;
         }
-        
-        return false;
+        return createBeanSerializer(remainingProps, beanDesc);
     }
     
-    BeanSerializer withWrappedProperties(MapperConfig<?> config, BeanDescription beanDesc) {
-        AnyGetterWriter anyGetterWriter = null;
+    /**
+     * @return copy of the serializer without virtual properties, applying projections ({@link Projection}) like the wrapping serializers
+     */
+    BeanSerializer withoutWrappedProperties(BeanDescription beanDesc) {
+        BeanSerializerBuilder builder = new BeanSerializerBuilder(beanDesc);
+        builder.setTypeId(_typeId);
         for (BeanPropertyWriter writer : _props) {
             if (writer instanceof AnyGetterWriter) {
-                anyGetterWriter = (AnyGetterWriter) writer;
+                builder.setAnyGetter((AnyGetterWriter) writer);
             }
         }
-
-        PropInfo remainingProps = wrapProperties(_props, (_filteredProps == null ? new BeanPropertyWriter[0] : _filteredProps), anyGetterWriter, config, beanDesc);
-        return createBeanSerializer(remainingProps, beanDesc);
+        builder.setFilterId(_propertyFilterId);
+        builder.setObjectIdWriter(_objectIdWriter);
+        
+        return new WrappingBeanSerializer(_beanType, builder, _props, _filteredProps, new WrappingPropertyWriter[0]);
     }
     
     private BeanSerializer createBeanSerializer(PropInfo propInfo, BeanDescription beanDesc) {
@@ -96,34 +105,35 @@ class WrappingBeanSerializerBuilder extends BeanSerializer {
         builder.setFilterId(_propertyFilterId);
         builder.setObjectIdWriter(_objectIdWriter);
         
-        return new BeanSerializer(_beanType, builder, propInfo.props.toArray(new BeanPropertyWriter[propInfo.props.size()]), propInfo.fprops.toArray(new BeanPropertyWriter[propInfo.fprops.size()]));
+        return new WrappingBeanSerializer(_beanType, builder, propInfo.propsArray(), propInfo.fpropsArray(),
+                                          propInfo.wrappingProps.toArray(new WrappingPropertyWriter[propInfo.wrappingProps.size()]));
     }
     
-    private BeanSerializer createWrappingBeanSerializer(PropInfo propInfo, BeanDescription beanDesc) {
+    private VirtualObjectSerializer createVirtualObjectSerializer(PropInfo propInfo, BeanDescription beanDesc) {
         BeanSerializerBuilder builder = new BeanSerializerBuilder(beanDesc);
         builder.setAnyGetter(propInfo.anyGetterWriter);
         builder.setFilterId(_propertyFilterId);
         
-        return new BeanSerializer(_beanType, builder, propInfo.props.toArray(new BeanPropertyWriter[propInfo.props.size()]), propInfo.fprops.toArray(new BeanPropertyWriter[propInfo.fprops.size()]));
+        return new VirtualObjectSerializer(_beanType, builder, propInfo.propsArray(), propInfo.fpropsArray(),
+                                           propInfo.wrappingProps.toArray(new WrappingPropertyWriter[propInfo.wrappingProps.size()]));
     }
     
-    private PropInfo wrapProperties(BeanPropertyWriter[] propsIn, BeanPropertyWriter[] fpropsIn, AnyGetterWriter anyGetterWriter, MapperConfig<?> config, BeanDescription beanDesc) {
-        List<BeanPropertyWriter>  propsOut = new ArrayList<BeanPropertyWriter>( propsIn.length);
-        List<BeanPropertyWriter> fpropsOut = new ArrayList<BeanPropertyWriter>(fpropsIn.length);
+    private PropInfo wrapProperties(BeanPropertyWriter[] propsIn, BeanPropertyWriter[] fpropsIn, AnyGetterWriter anyGetterWriter, MapperConfig<?> config, BeanDescription beanDesc, WrappingPlan.TypeLevel typeLevel) {
         Map<String, PropInfo> wrappedProps = new LinkedHashMap<String, PropInfo>(); // key = virtual property, value = grouped wrapped properties
-        PropInfo remainingProps = new PropInfo();
+        PropInfo remainingProps = new PropInfo(fpropsIn != null);
         
         // filter properties (BeanPropertyWriter) that should be wrapped
-        // non-wrapped go into propsOut/fpropsOut
+        // non-wrapped stay in remainingProps
         // wrapped go into wrappedProps map
-        filterAndGroupWrappedProperties( propsIn,  propsOut, wrappedProps, beanDesc, false); // non filtered
-        filterAndGroupWrappedProperties(fpropsIn, fpropsOut, wrappedProps, beanDesc, true);  // filtered
+        filterAndGroupWrappedProperties(propsIn, fpropsIn, remainingProps, wrappedProps, typeLevel);
         
         // wrap properties written by @JsonAnyGetter
         if (anyGetterWriter != null) {
             String virtualProperty = getVirtualPropertyNameFromAnnotation(beanDesc.findAnyGetter());
             if (virtualProperty != null) {
-                PropInfo wrapped = getOrCreatePropInfo(wrappedProps, virtualProperty);
+                PropInfo wrapped = getOrCreatePropInfo(wrappedProps, virtualProperty, fpropsIn != null);
+                wrapped.omitIfEmpty(beanDesc.findAnyGetter().getAnnotation(JsonWrapped.class).omitIfEmpty());
+                wrapped.cache(beanDesc.findAnyGetter().getAnnotation(JsonWrapped.class).cache());
                 wrapped.anyGetterWriter = anyGetterWriter;
             } else {
                 remainingProps.anyGetterWriter = anyGetterWriter;
@@ -131,88 +141,126 @@ class WrappingBeanSerializerBuilder extends BeanSerializer {
         }
         
         // create a wrapping virtual property for each group and add them to the remaining normal props of the bean
+        addVirtualProperties(remainingProps, wrappedProps, null, config, beanDesc);
+        
+        return remainingProps;
+    }
+    
+    /**
+     * Nested virtual properties (paths) are created first, as they are properties of the enclosing virtual property.
+     */
+    private void addVirtualProperties(PropInfo target, Map<String, PropInfo> wrappedProps, String parentPath, MapperConfig<?> config, BeanDescription beanDesc) {
         for (Entry<String, PropInfo> entry : wrappedProps.entrySet()) {
-            BeanPropertyWriter virtualProperty = constructVirtualProperty(entry.getKey(), entry.getValue(), config, beanDesc);
-            if (entry.getValue().views.isEmpty()) {
-                propsOut.add(virtualProperty);
-            } else {
-                fpropsOut.add(virtualProperty);
+            PropInfo wrapped = entry.getValue();
+            String path = (parentPath == null ? entry.getKey() : parentPath + "." + entry.getKey());
+            addVirtualProperties(wrapped, wrapped.children, path, config, beanDesc);
+            
+            WrappingPropertyWriter virtualProperty = constructVirtualProperty(entry.getKey(), path, wrapped, config, beanDesc);
+            target.wrappingProps.add(virtualProperty);
+            
+            if (!wrapped.isRestrictedToViews()) {
+                target.add(virtualProperty, virtualProperty);
+                target.includedInAllViews = true;
+            } else if (wrapped.views.isEmpty()) { // none of the wrapped properties is included in any view
+                target.add(virtualProperty, null);
+                target.hasFilteredProps = true;
+            } else { // filter complete property by view
+                target.add(virtualProperty, FilteredBeanPropertyWriter.constructViewBased(virtualProperty, virtualProperty.getViews()));
+                target.hasFilteredProps = true;
+                if (!target.virtualPropertyViews) { // an enclosing virtual property is included in the views of its nested ones
+                    target.views.addAll(wrapped.views);
+                }
             }
         }
-        
-        remainingProps.props = propsOut;
-        remainingProps.fprops = fpropsOut;
-        return remainingProps;
     }
     
-    private void filterAndGroupWrappedProperties(BeanPropertyWriter[] in, List<BeanPropertyWriter> out, Map<String, PropInfo> wrappedProps, BeanDescription beanDesc, boolean filteredInProps) {
-        for (BeanPropertyWriter prop : in) {
-            if (prop != null) {
-                String virtualPropertyName = getVirtualPropertyName(prop, beanDesc.getClassInfo());
-                if (virtualPropertyName != null) {
-                    List<Class<?>> virtualPropertyViews = getVirtualPropertyViews(prop, beanDesc.getClassInfo());
-                    PropInfo wrapped = getOrCreatePropInfo(wrappedProps, virtualPropertyName);
-                    
-                    if (!virtualPropertyViews.isEmpty()) {
-                        if (!wrapped.virtualPropertyViews) { // if JsonWrapped defines views, then override exising ones from props
-                            wrapped.virtualPropertyViews = true; // and lock them
-                            wrapped.views.clear();
-                        }
-                        wrapped.views.addAll(virtualPropertyViews);
+    /**
+     * Properties and filtered properties are aligned by index, so filtered properties (views)
+     * of the original bean serializer are moved together with their properties.
+     */
+    private void filterAndGroupWrappedProperties(BeanPropertyWriter[] propsIn, BeanPropertyWriter[] fpropsIn, PropInfo remainingProps, Map<String, PropInfo> wrappedProps, WrappingPlan.TypeLevel typeLevel) {
+        for (int i = 0; i < propsIn.length; i++) {
+            BeanPropertyWriter prop = propsIn[i];
+            BeanPropertyWriter fprop = (fpropsIn == null ? prop : fpropsIn[i]);
+            
+            String virtualPropertyName = getVirtualPropertyName(prop, typeLevel);
+            if (virtualPropertyName != null) {
+                List<Class<?>> virtualPropertyViews = getVirtualPropertyViews(prop, typeLevel);
+                PropInfo wrapped = getOrCreatePropInfo(wrappedProps, virtualPropertyName, fpropsIn != null);
+                
+                if (!virtualPropertyViews.isEmpty()) {
+                    if (!wrapped.virtualPropertyViews) { // if JsonWrapped defines views, then override exising ones from props
+                        wrapped.virtualPropertyViews = true; // and lock them
+                        wrapped.views.clear();
                     }
-                    
-                    if (filteredInProps) {
-                        wrapped.fprops.add(prop);
-                        if (!wrapped.virtualPropertyViews) { // do not override views from JsonWrapped
-                            wrapped.views.addAll(Arrays.asList(prop.getViews())); // views are only interesting for filtered props
-                        }
+                    wrapped.views.addAll(virtualPropertyViews);
+                } else if (!wrapped.virtualPropertyViews && fprop != null) { // do not override views from JsonWrapped
+                    if (fprop.getViews() == null) { // property is included in all views, so the virtual property has to be included as well
+                        wrapped.includedInAllViews = true;
                     } else {
-                        wrapped.props.add(prop);
+                        wrapped.views.addAll(Arrays.asList(fprop.getViews()));
                     }
-                } else {
-                    out.add(prop);
                 }
+                
+                wrapped.omitIfEmpty(isOmitIfEmpty(prop, typeLevel));
+                wrapped.cache(getCache(prop, typeLevel));
+                wrapped.add(prop, fprop);
+            } else {
+                remainingProps.add(prop, fprop);
             }
         }
     }
     
-    private PropInfo getOrCreatePropInfo(Map<String, PropInfo> wrappedProps, String virtualProperty) {
-        PropInfo wrapped = wrappedProps.get(virtualProperty);
-        if (wrapped == null) {
-            wrapped = new PropInfo();
-            wrappedProps.put(virtualProperty, wrapped);
+    /**
+     * @param virtualProperty name or normalized dotted path of the virtual property
+     * @return the innermost virtual property of the path
+     */
+    private PropInfo getOrCreatePropInfo(Map<String, PropInfo> wrappedProps, String virtualProperty, boolean hasFilteredProps) {
+        PropInfo wrapped = null;
+        for (String name : virtualProperty.split("\\.")) {
+            Map<String, PropInfo> level = (wrapped == null ? wrappedProps : wrapped.children);
+            PropInfo child = level.get(name);
+            if (child == null) {
+                child = new PropInfo(hasFilteredProps);
+                child.parent = wrapped;
+                level.put(name, child);
+            }
+            wrapped = child;
         }
         return wrapped;
     }
     
-    private String getVirtualPropertyName(BeanPropertyWriter prop, AnnotatedClass type) {
+    private String getVirtualPropertyName(BeanPropertyWriter prop, WrappingPlan.TypeLevel typeLevel) {
         String virtualProperty = getVirtualPropertyNameFromAnnotation(prop.getMember()); // from property level
-        if (virtualProperty == null) {
-            virtualProperty = getVirtualPropertyNameFromType(type, prop.getName()); // from class level
+        if (virtualProperty == null && typeLevel != null) {
+            virtualProperty = typeLevel.getVirtualPropertyName(prop.getName()); // from class level
         }
         return virtualProperty;
     }
     
     private String getVirtualPropertyNameFromAnnotation(Annotated annotated) {
         JsonWrapped annotation = annotated.getAnnotation(JsonWrapped.class);
-        if (annotation != null && annotation.value() != null && !annotation.value().trim().isEmpty()) {
-            return annotation.value().trim();
+        return annotation != null ? WrappingPlan.virtualPropertyPath(annotation.value()) : null;
+    }
+    
+    private boolean isOmitIfEmpty(BeanPropertyWriter prop, WrappingPlan.TypeLevel typeLevel) {
+        if (getVirtualPropertyNameFromAnnotation(prop.getMember()) != null) { // from property level
+            return prop.getMember().getAnnotation(JsonWrapped.class).omitIfEmpty();
         }
-        return null;
+        return typeLevel != null && typeLevel.isOmitIfEmpty(prop.getName()); // from class level
     }
     
-    private String getVirtualPropertyNameFromType(Annotated typeAnnotation, String propName) {
-        String virtualProperty = getVirtualPropertyNameFromAnnotation(typeAnnotation);
-        if (virtualProperty != null && Arrays.asList(typeAnnotation.getAnnotation(JsonWrapped.class).properties()).contains(propName)) {
-            return virtualProperty;
+    private JsonWrapped.Cache getCache(BeanPropertyWriter prop, WrappingPlan.TypeLevel typeLevel) {
+        if (getVirtualPropertyNameFromAnnotation(prop.getMember()) != null) { // from property level
+            return prop.getMember().getAnnotation(JsonWrapped.class).cache();
         }
-        return null;
+        return typeLevel != null ? typeLevel.getCache(prop.getName()) : JsonWrapped.Cache.NONE; // from class level
     }
     
-    private List<Class<?>> getVirtualPropertyViews(BeanPropertyWriter prop, AnnotatedClass type) {
+    private List<Class<?>> getVirtualPropertyViews(BeanPropertyWriter prop, WrappingPlan.TypeLevel typeLevel) {
         List<Class<?>> virtualPropertyViews = getVirtualPropertyViewsFromAnnotation(prop.getMember()); // from property level
-        if (virtualPropertyViews.isEmpty()) {
-            virtualPropertyViews = getVirtualPropertyViewsFromType(type, prop.getName()); // from class level
+        if (virtualPropertyViews.isEmpty() && typeLevel != null) {
+            virtualPropertyViews = typeLevel.getVirtualPropertyViews(prop.getName()); // from class level
         }
         return virtualPropertyViews;
     }
@@ -225,15 +273,7 @@ class WrappingBeanSerializerBuilder extends BeanSerializer {
         return Collections.emptyList();
     }
     
-    private List<Class<?>> getVirtualPropertyViewsFromType(Annotated typeAnnotated, String propName) {
-        String virtualProperty = getVirtualPropertyNameFromAnnotation(typeAnnotated);
-        if (virtualProperty != null && Arrays.asList(typeAnnotated.getAnnotation(JsonWrapped.class).properties()).contains(propName)) {
-            return getVirtualPropertyViewsFromAnnotation(typeAnnotated);
-        }
-        return Collections.emptyList();
-    }
-    
-    private BeanPropertyWriter constructVirtualProperty(String name, PropInfo wrappedProps, MapperConfig<?> config, BeanDescription beanDesc) {
+    private WrappingPropertyWriter constructVirtualProperty(String name, String path, PropInfo wrappedProps, MapperConfig<?> config, BeanDescription beanDesc) {
         // code partly from com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector._constructVirtualProperty(Prop, MapperConfig<?>, AnnotatedClass)
         AnnotatedClass ac = beanDesc.getClassInfo();
         PropertyMetadata metadata = PropertyMetadata.STD_OPTIONAL;
@@ -242,23 +282,71 @@ class WrappingBeanSerializerBuilder extends BeanSerializer {
         AnnotatedMember member = new VirtualAnnotatedMember(ac, ac.getRawType(), propName.getSimpleName(), type);
         SimpleBeanPropertyDefinition propDef = SimpleBeanPropertyDefinition.construct(config, member, propName, metadata, Include.NON_EMPTY);
 
-        BeanSerializer wrappedPropsSerializer = createWrappingBeanSerializer(wrappedProps, beanDesc);
+        VirtualObjectSerializer wrappedPropsSerializer = createVirtualObjectSerializer(wrappedProps, beanDesc);
         
-        BeanPropertyWriter writer = new WrappingPropertyWriter(propDef, ac.getAnnotations(), type, wrappedPropsSerializer);
-        if (!wrappedProps.views.isEmpty()) { // filter complete property by view, if required
-            writer = FilteredBeanPropertyWriter.constructViewBased(writer, wrappedProps.views.toArray(new Class<?>[wrappedProps.views.size()]));
-        }
+        Class<?>[] views = wrappedProps.isRestrictedToViews() ? wrappedProps.views.toArray(new Class<?>[wrappedProps.views.size()]) : null;
         
-        return writer;
+        if (listener != null) { // decided once, no costs without listener
+            return new InstrumentedWrappingPropertyWriter(propDef, ac.getAnnotations(), type, views, wrappedPropsSerializer, wrappedProps.omitIfEmpty,
+                                                          wrappedProps.cache, listener, beanDesc.getBeanClass(), path);
+        }
+        return interner.intern(config, beanDesc.getBeanClass(),
+                               new WrappingPropertyWriter(propDef, ac.getAnnotations(), type, views, wrappedPropsSerializer, wrappedProps.omitIfEmpty, wrappedProps.cache));
     }
     
     private static class PropInfo {
         
         private List<BeanPropertyWriter>  props = new ArrayList<BeanPropertyWriter>();
-        private List<BeanPropertyWriter> fprops = new ArrayList<BeanPropertyWriter>();
+        private List<BeanPropertyWriter> fprops = new ArrayList<BeanPropertyWriter>(); // aligned with props, entries might be null
+        private boolean hasFilteredProps;
         
         private Set<Class<?>> views = new HashSet<Class<?>>();
         private boolean virtualPropertyViews = false;
+        private boolean includedInAllViews = false;
+        private boolean omitIfEmpty = false;
+        private JsonWrapped.Cache cache = JsonWrapped.Cache.NONE;
         private AnyGetterWriter anyGetterWriter;
+        private List<WrappingPropertyWriter> wrappingProps = new ArrayList<WrappingPropertyWriter>();
+        private Map<String, PropInfo> children = new LinkedHashMap<String, PropInfo>(); // nested virtual properties
+        private PropInfo parent;
+        
+        private PropInfo(boolean hasFilteredProps) {
+            this.hasFilteredProps = hasFilteredProps;
+        }
+        
+        private void add(BeanPropertyWriter prop, BeanPropertyWriter fprop) {
+            props.add(prop);
+            fprops.add(fprop);
+        }
+        
+        /**
+         * Applies to the enclosing virtual properties as well
+         */
+        private void omitIfEmpty(boolean omitIfEmpty) {
+            for (PropInfo info = this; omitIfEmpty && info != null; info = info.parent) {
+                info.omitIfEmpty = true;
+            }
+        }
+        
+        /**
+         * Applies to this virtual property only, {@link JsonWrapped.Cache#VALUES} has precedence
+         */
+        private void cache(JsonWrapped.Cache cache) {
+            if (cache.ordinal() > this.cache.ordinal()) {
+                this.cache = cache;
+            }
+        }
+        
+        private boolean isRestrictedToViews() {
+            return virtualPropertyViews || (hasFilteredProps && !includedInAllViews);
+        }
+        
+        private BeanPropertyWriter[] propsArray() {
+            return props.toArray(new BeanPropertyWriter[props.size()]);
+        }
+        
+        private BeanPropertyWriter[] fpropsArray() {
+            return hasFilteredProps ? fprops.toArray(new BeanPropertyWriter[fprops.size()]) : null;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+
+import java.io.IOException;
+
+/**
+ * Token level copy of a value from a parser to a generator in a {@link WrappingLayout}, see {@link WrappingLayout#copy(JsonParser, JsonGenerator)}.
+ *
+ * Fields that stay where they are (and values of fields, elements of arrays, ...) are copied by {@link JsonGenerator#copyCurrentStructure(JsonParser)}
+ * of the target generator, thus with its optimized copy methods. Only the fields moved into virtual objects are copied token by token
+ * to a {@link WrappingGenerator}, which records them until the end of their object.
+ */
+final class WrappingCopier {
+
+    private WrappingCopier() {
+    }
+
+    /**
+     * @param maxBufferedTokens maximum number of tokens of the moved values per object
+     */
+    static void copy(JsonParser parser, JsonGenerator out, WrappingLayout layout, int maxBufferedTokens) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.FIELD_NAME) { // like copyCurrentStructure, the field is copied with its value
+            out.writeFieldName(parser.currentName());
+            token = parser.nextToken();
+        }
+        if (token == JsonToken.START_OBJECT) {
+            copyObject(parser, out, new WrappingGenerator(out, layout), layout, maxBufferedTokens);
+        } else if (token == JsonToken.START_ARRAY) {
+            WrappingGenerator gen = null;
+            out.writeStartArray();
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_OBJECT) {
+                    if (gen == null) {
+                        gen = new WrappingGenerator(out, layout); // reused for all objects of the array
+                    }
+                    copyObject(parser, out, gen, layout, maxBufferedTokens);
+                } else {
+                    out.copyCurrentStructure(parser);
+                }
+            }
+            out.writeEndArray();
+        } else {
+            out.copyCurrentStructure(parser);
+        }
+    }
+
+    /**
+     * Parser points to the start of the object, after the copy to its end
+     */
+    private static void copyObject(JsonParser parser, JsonGenerator out, WrappingGenerator gen, WrappingLayout layout, int maxBufferedTokens) throws IOException {
+        int bufferedTokens = 0;
+        gen.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (layout.target(name) == null) {
+                out.copyCurrentStructure(parser); // field name and value
+                continue;
+            }
+            gen.writeFieldName(name); // recorded
+            parser.nextToken();
+            int depth = 0;
+            do {
+                if (++bufferedTokens > maxBufferedTokens) {
+                    throw new StreamConstraintsException("Fields moved into virtual objects exceed " + maxBufferedTokens + " tokens", parser.currentLocation());
+                }
+                JsonToken token = parser.currentToken();
+                gen.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+            } while (depth > 0 && parser.nextToken() != null);
+        }
+        gen.writeEndObject();
+    }
+
+}
@@ -0,0 +1,505 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Generator routing the fields of the root object (or of the objects of a root array) into the virtual objects of a {@link WrappingLayout}.
+ *
+ * The routed fields are recorded in input order and written at the end of their object: scalar values (strings, numbers, booleans, null)
+ * by reference in arrays reused for all objects, other values (objects, arrays, binary, raw, ...) in a {@link TokenBuffer} per value,
+ * the delegate is switched to the buffer until the next field or the end of the object.
+ * All other fields and values are written to the generator directly.
+ *
+ * The copy methods ({@link #copyCurrentStructure(JsonParser)}, {@link #writeObject(Object)}, ...) are not delegated,
+ * so their fields are routed as well.
+ */
+final class WrappingGenerator extends JsonGeneratorDelegate {
+
+    private static final int INITIAL_FIELDS = 8;
+
+    private final JsonGenerator out;
+    private final WrappingLayout layout;
+    private final int[] fieldCounts; // aligned with the virtual objects of the layout
+
+    // routed fields of the current object in input order
+    private WrappingLayout.VirtualObject[] targets = new WrappingLayout.VirtualObject[INITIAL_FIELDS];
+    private Object[] names = new Object[INITIAL_FIELDS]; // String or SerializableString
+    private Object[] values = new Object[INITIAL_FIELDS];
+    private int fields;
+
+    private boolean pendingValue; // the last field is routed, its value is not written yet
+    private int depth; // open objects and arrays, including those in buffers
+    private int wrappingDepth = -1; // depth inside the object whose fields are routed, -1 if there is none
+    private boolean inRootArray;
+
+    WrappingGenerator(JsonGenerator out, WrappingLayout layout) {
+        super(out, false);
+        this.out = out;
+        this.layout = layout;
+        this.fieldCounts = new int[layout.size()];
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        startObject();
+        delegate.writeStartObject();
+    }
+
+    @Override
+    public void writeStartObject(Object forValue) throws IOException {
+        startObject();
+        delegate.writeStartObject(forValue);
+    }
+
+    @Override
+    public void writeStartObject(Object forValue, int size) throws IOException {
+        if (startObject()) {
+            delegate.writeStartObject(forValue); // number of fields changes
+        } else {
+            delegate.writeStartObject(forValue, size);
+        }
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        startArray();
+        delegate.writeStartArray();
+    }
+
+    @Override
+    @Deprecated
+    public void writeStartArray(int size) throws IOException {
+        writeStartArray(null, size);
+    }
+
+    @Override
+    public void writeStartArray(Object forValue) throws IOException {
+        startArray();
+        delegate.writeStartArray(forValue);
+    }
+
+    @Override
+    public void writeStartArray(Object forValue, int size) throws IOException {
+        startArray();
+        delegate.writeStartArray(forValue, size);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        depth--;
+        if (depth == 0) {
+            inRootArray = false;
+        }
+        delegate.writeEndArray();
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (depth == wrappingDepth) {
+            delegate = out;
+            pendingValue = false;
+            if (fields > 0) {
+                writeVirtualObjects();
+            }
+            wrappingDepth = -1;
+        }
+        depth--;
+        delegate.writeEndObject();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (depth != wrappingDepth || !route(name, name)) {
+            delegate.writeFieldName(name);
+        }
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        if (depth != wrappingDepth || !route(name.getValue(), name)) {
+            delegate.writeFieldName(name);
+        }
+    }
+
+    @Override
+    public void writeFieldId(long id) throws IOException {
+        if (depth != wrappingDepth || !route(Long.toString(id), Long.toString(id))) {
+            delegate.writeFieldId(id);
+        }
+    }
+
+    // scalar values of routed fields are recorded
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (pendingValue) {
+            recordValue(text);
+        } else {
+            delegate.writeString(text);
+        }
+    }
+
+    @Override
+    public void writeString(SerializableString text) throws IOException {
+        if (pendingValue) {
+            recordValue(text);
+        } else {
+            delegate.writeString(text);
+        }
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        if (pendingValue) {
+            recordValue(new String(text, offset, len)); // e.g. copied from a parser
+        } else {
+            delegate.writeString(text, offset, len);
+        }
+    }
+
+    @Override
+    public void writeNumber(short v) throws IOException {
+        if (pendingValue) {
+            recordValue(Short.valueOf(v));
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        if (pendingValue) {
+            recordValue(Integer.valueOf(v));
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        if (pendingValue) {
+            recordValue(Long.valueOf(v));
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (pendingValue) {
+            recordValue(v);
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        if (pendingValue) {
+            recordValue(Double.valueOf(v));
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        if (pendingValue) {
+            recordValue(Float.valueOf(v));
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (pendingValue) {
+            recordValue(v);
+        } else {
+            delegate.writeNumber(v);
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        if (pendingValue) {
+            recordValue(Boolean.valueOf(state));
+        } else {
+            delegate.writeBoolean(state);
+        }
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        if (pendingValue) {
+            recordValue(null);
+        } else {
+            delegate.writeNull();
+        }
+    }
+
+    // other values of routed fields are buffered
+
+    @Override
+    public void writeString(Reader reader, int len) throws IOException {
+        bufferPendingValue();
+        delegate.writeString(reader, len);
+    }
+
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeRawUTF8String(text, offset, length);
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeUTF8String(text, offset, length);
+    }
+
+    @Override
+    public void writeRawValue(String text) throws IOException {
+        bufferPendingValue();
+        delegate.writeRawValue(text);
+    }
+
+    @Override
+    public void writeRawValue(String text, int offset, int len) throws IOException {
+        bufferPendingValue();
+        delegate.writeRawValue(text, offset, len);
+    }
+
+    @Override
+    public void writeRawValue(char[] text, int offset, int len) throws IOException {
+        bufferPendingValue();
+        delegate.writeRawValue(text, offset, len);
+    }
+
+    @Override
+    public void writeBinary(Base64Variant b64variant, byte[] data, int offset, int len) throws IOException {
+        bufferPendingValue();
+        delegate.writeBinary(b64variant, data, offset, len);
+    }
+
+    @Override
+    public int writeBinary(Base64Variant b64variant, InputStream data, int dataLength) throws IOException {
+        bufferPendingValue();
+        return delegate.writeBinary(b64variant, data, dataLength);
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        bufferPendingValue();
+        delegate.writeNumber(encodedValue);
+    }
+
+    @Override
+    public void writeNumber(char[] encodedValueBuffer, int offset, int len) throws IOException {
+        bufferPendingValue();
+        delegate.writeNumber(encodedValueBuffer, offset, len);
+    }
+
+    @Override
+    public void writeArray(int[] array, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeArray(array, offset, length);
+    }
+
+    @Override
+    public void writeArray(long[] array, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeArray(array, offset, length);
+    }
+
+    @Override
+    public void writeArray(double[] array, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeArray(array, offset, length);
+    }
+
+    @Override
+    public void writeArray(String[] array, int offset, int length) throws IOException {
+        bufferPendingValue();
+        delegate.writeArray(array, offset, length);
+    }
+
+    @Override
+    public void writeEmbeddedObject(Object object) throws IOException {
+        bufferPendingValue();
+        delegate.writeEmbeddedObject(object);
+    }
+
+    @Override
+    public void writeObjectId(Object id) throws IOException {
+        bufferPendingValue();
+        delegate.writeObjectId(id);
+    }
+
+    @Override
+    public void writeObjectRef(Object id) throws IOException {
+        bufferPendingValue();
+        delegate.writeObjectRef(id);
+    }
+
+    @Override
+    public void writeTypeId(Object id) throws IOException {
+        bufferPendingValue();
+        delegate.writeTypeId(id);
+    }
+
+    /**
+     * @return whether the fields of the object are routed
+     */
+    private boolean startObject() throws IOException {
+        bufferPendingValue();
+        boolean wrapping = (depth == 0 || (depth == 1 && inRootArray));
+        depth++;
+        if (wrapping) {
+            wrappingDepth = depth;
+        }
+        return wrapping;
+    }
+
+    private void startArray() throws IOException {
+        bufferPendingValue();
+        if (depth == 0) {
+            inRootArray = true;
+        }
+        depth++;
+    }
+
+    /**
+     * Records the field if it belongs to a virtual object, otherwise switches the delegate back to the generator
+     *
+     * @return whether the field is routed
+     */
+    private boolean route(String name, Object writtenName) {
+        delegate = out;
+        pendingValue = false;
+        WrappingLayout.VirtualObject target = layout.target(name);
+        if (target == null) {
+            return false;
+        }
+        if (fields == targets.length) {
+            targets = Arrays.copyOf(targets, fields * 2);
+            names = Arrays.copyOf(names, fields * 2);
+            values = Arrays.copyOf(values, fields * 2);
+        }
+        targets[fields] = target;
+        names[fields] = writtenName;
+        fields++;
+        fieldCounts[target.index]++;
+        pendingValue = true;
+        return true;
+    }
+
+    private void recordValue(Object value) {
+        values[fields - 1] = value;
+        pendingValue = false;
+    }
+
+    /**
+     * Switches the delegate to a buffer for the value of the routed field
+     */
+    private void bufferPendingValue() {
+        if (pendingValue) {
+            TokenBuffer buffer = new TokenBuffer(out.getCodec(), false);
+            recordValue(buffer);
+            delegate = buffer;
+        }
+    }
+
+    private void writeVirtualObjects() throws IOException {
+        for (WrappingLayout.VirtualObject virtualObject : layout.virtualObjects()) {
+            if (hasFields(virtualObject)) {
+                writeVirtualObject(virtualObject);
+            }
+        }
+        Arrays.fill(targets, 0, fields, null);
+        Arrays.fill(names, 0, fields, null);
+        Arrays.fill(values, 0, fields, null);
+        Arrays.fill(fieldCounts, 0);
+        fields = 0;
+    }
+
+    /**
+     * Own fields first, then nested virtual objects, like the virtual properties of beans
+     */
+    private void writeVirtualObject(WrappingLayout.VirtualObject virtualObject) throws IOException {
+        out.writeFieldName(virtualObject.name);
+        out.writeStartObject();
+        if (fieldCounts[virtualObject.index] > 0) {
+            for (int i = 0; i < fields; i++) {
+                if (targets[i] == virtualObject) {
+                    writeField(names[i], values[i]);
+                }
+            }
+        }
+        for (WrappingLayout.VirtualObject child : virtualObject.children) {
+            if (hasFields(child)) {
+                writeVirtualObject(child);
+            }
+        }
+        out.writeEndObject();
+    }
+
+    private void writeField(Object name, Object value) throws IOException {
+        if (name instanceof SerializableString) {
+            out.writeFieldName((SerializableString) name);
+        } else {
+            out.writeFieldName((String) name);
+        }
+        if (value == null) {
+            out.writeNull();
+        } else if (value instanceof String) {
+            out.writeString((String) value);
+        } else if (value instanceof SerializableString) {
+            out.writeString((SerializableString) value);
+        } else if (value instanceof Integer) {
+            out.writeNumber(((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeNumber(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeNumber(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value instanceof BigDecimal) {
+            out.writeNumber((BigDecimal) value);
+        } else if (value instanceof Float) {
+            out.writeNumber(((Float) value).floatValue());
+        } else if (value instanceof Short) {
+            out.writeNumber(((Short) value).shortValue());
+        } else if (value instanceof BigInteger) {
+            out.writeNumber((BigInteger) value);
+        } else {
+            ((TokenBuffer) value).serialize(out);
+        }
+    }
+
+    private boolean hasFields(WrappingLayout.VirtualObject virtualObject) {
+        if (fieldCounts[virtualObject.index] > 0) {
+            return true;
+        }
+        for (WrappingLayout.VirtualObject child : virtualObject.children) {
+            if (hasFields(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,111 @@
+package de.mw.jackson.wrapped;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Index of the classes compiled with the {@code JsonWrappedProcessor} (artifact with classifier {@code processor}), 
+ * read once per class loader.
+ *
+ * Each line of the index resource lists a class of the compilation by its binary name, prefixed by {@code +} if the class itself
+ * declares a {@link JsonWrapped} annotation and by {@code -} if it does not. All index resources visible to a class loader
+ * (e.g. of multiple jars) are combined, a class listed as annotated by any of them is annotated.
+ * The index is authoritative for the listed classes, only classes not listed (e.g. compiled without the processor) are scanned by reflection.
+ * Other lines (comments) are ignored.
+ */
+final class WrappingIndex {
+
+    static final String RESOURCE = "META-INF/jackson-wrapped.index";
+    static final char DECLARES_JSON_WRAPPED = '+';
+    static final char DECLARES_NO_JSON_WRAPPED = '-';
+
+    private static final WrappingIndex EMPTY = new WrappingIndex(Collections.<String, Boolean>emptyMap());
+    private static final Map<ClassLoader, WrappingIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<ClassLoader, WrappingIndex>());
+
+    private final Map<String, Boolean> types; // value = declares JsonWrapped
+
+    private WrappingIndex(Map<String, Boolean> types) {
+        this.types = types;
+    }
+
+    /**
+     * @return whether the class declares a {@link JsonWrapped} annotation itself (directly or in a bundle),
+     *         null if it is not listed in the index and has to be scanned
+     */
+    static Boolean declaresJsonWrapped(Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        if (loader == null) { // bootstrap classes can not resolve the annotation
+            return Boolean.FALSE;
+        }
+        return forLoader(loader).types.get(type.getName());
+    }
+
+    /**
+     * @return binary names of the indexed classes declaring a {@link JsonWrapped} annotation themselves, sorted
+     */
+    static List<String> typesDeclaringJsonWrapped(ClassLoader loader) {
+        List<String> names = new ArrayList<String>();
+        for (Map.Entry<String, Boolean> entry : forLoader(loader).types.entrySet()) {
+            if (entry.getValue()) {
+                names.add(entry.getKey());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static WrappingIndex forLoader(ClassLoader loader) {
+        WrappingIndex index = INDEXES.get(loader);
+        if (index == null) {
+            index = read(loader);
+            INDEXES.put(loader, index);
+        }
+        return index;
+    }
+
+    /**
+     * The index is optional, if it can not be read all classes are scanned.
+     */
+    private static WrappingIndex read(ClassLoader loader) {
+        try {
+            Enumeration<URL> resources = loader.getResources(RESOURCE);
+            if (!resources.hasMoreElements()) {
+                return EMPTY;
+            }
+            Map<String, Boolean> types = new HashMap<String, Boolean>();
+            while (resources.hasMoreElements()) {
+                read(resources.nextElement(), types);
+            }
+            return new WrappingIndex(types);
+        } catch (IOException e) {
+            return EMPTY;
+        }
+    }
+
+    private static void read(URL resource, Map<String, Boolean> types) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() < 2) {
+                    continue;
+                }
+                if (line.charAt(0) == DECLARES_JSON_WRAPPED) {
+                    types.put(line.substring(1), Boolean.TRUE);
+                } else if (line.charAt(0) == DECLARES_NO_JSON_WRAPPED && !types.containsKey(line.substring(1))) {
+                    types.put(line.substring(1), Boolean.FALSE);
+                } // comments and unknown lines
+            }
+        }
+    }
+
+}
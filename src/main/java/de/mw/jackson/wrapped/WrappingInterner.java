@@ -0,0 +1,270 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotationMap;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Shares structurally identical virtual properties ({@link WrappingPropertyWriter} including its {@link VirtualObjectSerializer})
+ * between the bean serializers of a mapper, e.g. of subclasses and proxy classes (Hibernate, ByteBuddy) inheriting the wrapped properties,
+ * instead of retaining a copy per concrete class.
+ *
+ * Virtual properties are identical if they have the same name, views, omitIfEmpty, cache and filter id, and their wrapped properties
+ * have the same name, accessor (the overridden declaration for methods overridden e.g. by proxies), annotations, type, inclusion and views.
+ * A shared virtual property is only used for beans inheriting all of its accessors, the most general one is kept.
+ * Properties with own serializers or type information, any getters and other writers (e.g. optimized by other modules) are never shared.
+ *
+ * The interner is state of the {@link JsonWrappedBeanSerializerModifier}, thus of a module instance.
+ * Serializers are resolved with the config they are constructed with (e.g. its config overrides), so virtual properties are only shared
+ * between serializers constructed with the same config instance: never between mappers (including copies), whatever they share.
+ * The config is referenced weakly, a config replaced by the mapper is dropped with its shared virtual properties.
+ */
+final class WrappingInterner {
+
+    private final Map<MapperConfig<?>, Shared> configs = new WeakHashMap<MapperConfig<?>, Shared>(); // identity, configs do not override equals
+
+    /**
+     * @param config config the serializer is constructed with
+     * @param beanClass class of the bean serializer owning the virtual property
+     * @param writer new virtual property, its nested virtual properties are interned already
+     * @return an identical virtual property shared with other bean serializers, or the given one
+     */
+    WrappingPropertyWriter intern(MapperConfig<?> config, Class<?> beanClass, WrappingPropertyWriter writer) {
+        synchronized (configs) {
+            Shared shared = configs.get(config);
+            if (shared == null) {
+                shared = new Shared();
+                configs.put(config, shared);
+            }
+            Signature signature = Signature.of(writer, shared.signatures);
+            if (signature == null) {
+                return writer;
+            }
+            Class<?>[] declaringClasses = declaringClasses(writer);
+            Interned existing = shared.interned.get(signature);
+            WrappingPropertyWriter existingWriter = (existing == null ? null : existing.writer.get());
+            if (existingWriter == null) { // dropped with its serializers
+                existing = null;
+            } else if (existing.isInheritedBy(beanClass)) {
+                return existingWriter;
+            }
+            if (existing == null || existing.isMoreSpecificThan(declaringClasses)) {
+                shared.interned.put(signature, new Interned(writer, declaringClasses));
+            }
+            shared.signatures.put(writer, signature);
+            return writer;
+        }
+    }
+
+    /**
+     * @return classes declaring the accessors of the wrapped properties, including nested virtual properties
+     */
+    private static Class<?>[] declaringClasses(WrappingPropertyWriter writer) {
+        List<Class<?>> declaringClasses = new ArrayList<Class<?>>();
+        for (BeanPropertyWriter prop : wrappedProperties(writer)) {
+            if (prop instanceof WrappingPropertyWriter) {
+                declaringClasses.addAll(Arrays.asList(declaringClasses((WrappingPropertyWriter) prop)));
+            } else {
+                declaringClasses.add(prop.getMember().getDeclaringClass());
+            }
+        }
+        return declaringClasses.toArray(new Class<?>[declaringClasses.size()]);
+    }
+
+    private static List<BeanPropertyWriter> wrappedProperties(WrappingPropertyWriter writer) {
+        List<BeanPropertyWriter> props = new ArrayList<BeanPropertyWriter>();
+        for (Iterator<PropertyWriter> it = writer.getWrappedPropertiesSerializer().properties(); it.hasNext(); ) {
+            props.add((BeanPropertyWriter) it.next());
+        }
+        return props;
+    }
+
+    /**
+     * Virtual properties of a config, referenced weakly: they reference the config (via their annotated members),
+     * which would keep the entry of the config alive otherwise
+     */
+    private static final class Shared {
+
+        private final Map<Signature, Interned> interned = new HashMap<Signature, Interned>();
+        // signatures of all interned virtual properties, nested ones may be resolved already when the enclosing one is interned
+        private final Map<WrappingPropertyWriter, Signature> signatures = new WeakHashMap<WrappingPropertyWriter, Signature>(); // identity, writers do not override equals
+    }
+
+    /**
+     * A shared virtual property and the classes declaring its accessors
+     */
+    private static final class Interned {
+
+        private final WeakReference<WrappingPropertyWriter> writer;
+        private final Class<?>[] declaringClasses;
+
+        Interned(WrappingPropertyWriter writer, Class<?>[] declaringClasses) {
+            this.writer = new WeakReference<WrappingPropertyWriter>(writer);
+            this.declaringClasses = declaringClasses;
+        }
+
+        boolean isInheritedBy(Class<?> beanClass) {
+            for (Class<?> declaringClass : declaringClasses) {
+                if (!declaringClass.isAssignableFrom(beanClass)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param others declaring classes of an identical virtual property, aligned with these
+         */
+        boolean isMoreSpecificThan(Class<?>[] others) {
+            for (int i = 0; i < declaringClasses.length; i++) {
+                if (!others[i].isAssignableFrom(declaringClasses[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Structure of a virtual property, independent of the class declaring it
+     */
+    private static final class Signature {
+
+        private static final Object SAME = "same";
+
+        private final List<Object> parts;
+        private final int hash;
+
+        private Signature(List<Object> parts) {
+            this.parts = parts;
+            this.hash = parts.hashCode();
+        }
+
+        /**
+         * @return signature of the virtual property, null if it can not be shared
+         */
+        static Signature of(WrappingPropertyWriter writer, Map<WrappingPropertyWriter, Signature> known) {
+            Signature signature = known.get(writer);
+            if (signature != null) {
+                return signature;
+            }
+            if (writer.getClass() != WrappingPropertyWriter.class) { // e.g. instrumented for a single bean type
+                return null;
+            }
+            VirtualObjectSerializer serializer = writer.getWrappedPropertiesSerializer();
+            List<Object> parts = new ArrayList<Object>();
+            parts.add(writer.getName());
+            parts.add(views(writer));
+            parts.add(writer.isOmitIfEmpty());
+            parts.add(writer.getCacheMode());
+            parts.add(serializer.getFilterId());
+            List<BeanPropertyWriter> props = wrappedProperties(writer);
+            BeanPropertyWriter[] filteredProps = serializer.getFilteredProperties();
+            for (int i = 0; i < props.size(); i++) {
+                BeanPropertyWriter prop = props.get(i);
+                if (prop instanceof WrappingPropertyWriter) {
+                    Signature nested = of((WrappingPropertyWriter) prop, known);
+                    if (nested == null) {
+                        return null;
+                    }
+                    parts.add(nested);
+                } else if (!addProperty(parts, prop)) {
+                    return null;
+                }
+                if (filteredProps != null) {
+                    BeanPropertyWriter filteredProp = filteredProps[i];
+                    parts.add(filteredProp == null ? null : filteredProp == prop ? SAME : views(filteredProp));
+                }
+            }
+            return new Signature(parts);
+        }
+
+        /**
+         * @return false if the property can not be shared
+         */
+        private static boolean addProperty(List<Object> parts, BeanPropertyWriter prop) {
+            if (prop.getClass() != BeanPropertyWriter.class || prop.hasSerializer() || prop.hasNullSerializer() || prop.getTypeSerializer() != null) {
+                return false;
+            }
+            VirtualObjectSerializer.InclusionOf inclusion = new VirtualObjectSerializer.InclusionOf(prop);
+            parts.add(prop.getName());
+            parts.add(prop.getWrapperName());
+            parts.add(rootDeclaration(prop.getMember().getMember()));
+            parts.add(annotations(prop));
+            parts.add(prop.getType());
+            parts.add(prop.getSerializationType());
+            parts.add(inclusion.suppressNulls());
+            parts.add(inclusion.suppressableValue());
+            parts.add(views(prop));
+            return true;
+        }
+
+        /**
+         * @return annotations of the accessor merged by Jackson (e.g. {@code @JsonFormat} of an overriding getter), inherited by proxies
+         */
+        private static Set<Annotation> annotations(BeanPropertyWriter prop) {
+            Set<Annotation> annotations = new HashSet<Annotation>();
+            AnnotationMap merged = prop.getMember().getAllAnnotations();
+            if (merged != null) {
+                for (Annotation annotation : merged.annotations()) {
+                    annotations.add(annotation);
+                }
+            }
+            return annotations;
+        }
+
+        private static List<Class<?>> views(BeanPropertyWriter prop) {
+            return prop.getViews() == null ? null : Arrays.asList(prop.getViews());
+        }
+
+        /**
+         * @return the method overridden by the given one (e.g. by a proxy class), the given member otherwise
+         */
+        private static Member rootDeclaration(Member member) {
+            if (!(member instanceof Method)) {
+                return member;
+            }
+            Method root = (Method) member;
+            try {
+                for (Class<?> type = root.getDeclaringClass().getSuperclass(); type != null; type = type.getSuperclass()) {
+                    try {
+                        Method overridden = type.getDeclaredMethod(root.getName(), root.getParameterTypes());
+                        if (!Modifier.isPrivate(overridden.getModifiers())) {
+                            root = overridden;
+                        }
+                    } catch (NoSuchMethodException e) { // declared further up
+                    }
+                }
+            } catch (SecurityException e) { // keep the most specific one found
+            }
+            return root;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Signature && hash == ((Signature) obj).hash && parts.equals(((Signature) obj).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
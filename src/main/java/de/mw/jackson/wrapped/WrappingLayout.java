@@ -0,0 +1,241 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wrapping rules for schemaless payloads ({@code Map<String, Object>}, {@link com.fasterxml.jackson.databind.JsonNode}, ...)
+ * that should be written in the same layout as wrapped beans, without copying them into nested maps first.
+ *
+ * The fields of the written object are routed into virtual objects by their names while writing:
+ *
+ * <pre>
+ * WrappingLayout layout = WrappingLayout.of(mapper, Person.class); // or WrappingLayout.empty().wrap("name", "first", "last")
+ * mapper.writeValue(layout.applyTo(mapper.createGenerator(out)), map);
+ * </pre>
+ *
+ * Like {@link Projection} a layout applies to the root object and the objects of a root array, values of fields are written as they are.
+ * The virtual objects are written after all other fields in the order of the rules, like the virtual properties of beans,
+ * thus only the fields inside virtual objects are buffered until the end of their object.
+ * Virtual objects without any field are omitted.
+ *
+ * JSON can be reshaped without binding it, e.g. flat JSON of another service passed through a gateway:
+ *
+ * <pre>
+ * layout.copy(mapper.createParser(in), gen);
+ * </pre>
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class WrappingLayout {
+
+    /**
+     * Default of {@link #withMaxBufferedTokens(int)}
+     */
+    public static final int DEFAULT_MAX_BUFFERED_TOKENS = 100000;
+
+    private static final WrappingLayout EMPTY = new WrappingLayout(Collections.<String, String>emptyMap(), DEFAULT_MAX_BUFFERED_TOKENS);
+
+    private final Map<String, String> paths; // key = name of the field, value = path of its virtual object
+    private final int maxBufferedTokens;
+    private final VirtualObject root = new VirtualObject(null, -1);
+    private final Map<String, VirtualObject> targets = new HashMap<String, VirtualObject>();
+    private final int virtualObjects;
+
+    private WrappingLayout(Map<String, String> paths, int maxBufferedTokens) {
+        this.paths = paths;
+        this.maxBufferedTokens = maxBufferedTokens;
+        Map<String, VirtualObject> compiled = new HashMap<String, VirtualObject>();
+        for (Map.Entry<String, String> entry : paths.entrySet()) {
+            VirtualObject level = root;
+            String path = null;
+            for (String name : entry.getValue().split("\\.")) {
+                path = (path == null ? name : path + "." + name);
+                VirtualObject child = compiled.get(path);
+                if (child == null) {
+                    child = new VirtualObject(name, compiled.size());
+                    compiled.put(path, child);
+                    level.children.add(child);
+                }
+                level = child;
+            }
+            targets.put(entry.getKey(), level);
+        }
+        this.virtualObjects = compiled.size();
+    }
+
+    /**
+     * @return layout without any virtual object
+     */
+    public static WrappingLayout empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Layout of the virtual properties of a type, as written by the mapper for beans of that type (including rules of the {@link JsonWrappedModule}).
+     * Properties of {@code @JsonAnyGetter} and views are not taken into account.
+     *
+     * @param mapper mapper with registered module
+     * @param type type with virtual properties
+     * @return the layout, empty if the type has no virtual properties
+     * @throws JsonMappingException if the serializer of the type can not be constructed
+     */
+    public static WrappingLayout of(ObjectMapper mapper, Class<?> type) throws JsonMappingException {
+        JsonSerializer<Object> serializer = mapper.getSerializerProviderInstance().findValueSerializer(type);
+        Map<String, String> paths = new LinkedHashMap<String, String>();
+        if (serializer instanceof BeanSerializerBase) {
+            collectPaths(((BeanSerializerBase) serializer).properties(), null, paths);
+        }
+        return paths.isEmpty() ? EMPTY : new WrappingLayout(paths, DEFAULT_MAX_BUFFERED_TOKENS);
+    }
+
+    private static void collectPaths(Iterator<PropertyWriter> props, String path, Map<String, String> paths) {
+        while (props.hasNext()) {
+            PropertyWriter prop = props.next();
+            if (prop instanceof WrappingPropertyWriter) {
+                String nested = (path == null ? prop.getName() : path + "." + prop.getName());
+                collectPaths(((WrappingPropertyWriter) prop).getWrappedPropertiesSerializer().properties(), nested, paths);
+            } else if (path != null) {
+                paths.put(prop.getName(), path);
+            }
+        }
+    }
+
+    /**
+     * Like {@link JsonWrappedModule#wrap(Class, String, String...)}, a field wrapped again is moved to the new virtual object.
+     *
+     * @param virtualProperty name or dotted path of the virtual object, see {@link JsonWrapped#value()}
+     * @param fields names of the wrapped fields
+     * @return copy of this layout including the virtual object
+     * @throws IllegalArgumentException if the name of the virtual object or the fields are missing
+     */
+    public WrappingLayout wrap(String virtualProperty, String... fields) {
+        String path = WrappingPlan.virtualPropertyPath(virtualProperty);
+        if (path == null || fields == null || fields.length == 0) {
+            throw new IllegalArgumentException("name of the virtual property and fields are required");
+        }
+        Map<String, String> wrapped = new LinkedHashMap<String, String>(paths);
+        for (String field : fields) {
+            if (field == null) {
+                throw new IllegalArgumentException("fields must not be null");
+            }
+            wrapped.remove(field); // the remaining fields of its former virtual object keep their order
+            wrapped.put(field, path);
+        }
+        return new WrappingLayout(wrapped, maxBufferedTokens);
+    }
+
+    /**
+     * @param gen generator to write to, typically created by the mapper
+     * @return generator routing the fields into virtual objects, closing it closes the given generator
+     */
+    public JsonGenerator applyTo(JsonGenerator gen) {
+        return paths.isEmpty() ? gen : new WrappingGenerator(gen, this);
+    }
+
+    /**
+     * Limits the memory used by {@link #copy(JsonParser, JsonGenerator)} for malformed or unexpected input,
+     * e.g. a huge array in a field that is moved into a virtual object.
+     *
+     * @param maxBufferedTokens maximum number of tokens of the values moved into virtual objects per object
+     * @return copy of this layout with the limit
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public WrappingLayout withMaxBufferedTokens(int maxBufferedTokens) {
+        if (maxBufferedTokens <= 0) {
+            throw new IllegalArgumentException("maxBufferedTokens must be positive");
+        }
+        return new WrappingLayout(paths, maxBufferedTokens);
+    }
+
+    /**
+     * Copies the current value of the parser to the generator in this layout, like {@link JsonGenerator#copyCurrentStructure(JsonParser)}
+     * (the parser points to the last token of the value afterwards).
+     * Fields staying in their object are copied as they are by the generator, only fields moved into virtual objects are buffered
+     * until the end of their object.
+     *
+     * @param parser parser pointing to the value to copy (or to the name of a field to copy)
+     * @param gen generator to write to
+     * @throws StreamConstraintsException if the moved fields of an object exceed the {@link #withMaxBufferedTokens(int) limit}
+     */
+    public void copy(JsonParser parser, JsonGenerator gen) throws IOException {
+        if (paths.isEmpty()) {
+            gen.copyCurrentStructure(parser);
+        } else {
+            WrappingCopier.copy(parser, gen, this, maxBufferedTokens);
+        }
+    }
+
+    /**
+     * @return virtual object of the field, null if it is not wrapped
+     */
+    VirtualObject target(String field) {
+        return targets.get(field);
+    }
+
+    /**
+     * @return virtual objects on the first level, nested ones as their children
+     */
+    List<VirtualObject> virtualObjects() {
+        return root.children;
+    }
+
+    /**
+     * @return number of all virtual objects, including nested ones
+     */
+    int size() {
+        return virtualObjects;
+    }
+
+    @Override
+    public String toString() {
+        Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, String> entry : paths.entrySet()) {
+            List<String> wrapped = fields.get(entry.getValue());
+            if (wrapped == null) {
+                wrapped = new ArrayList<String>();
+                fields.put(entry.getValue(), wrapped);
+            }
+            wrapped.add(entry.getKey());
+        }
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : fields.entrySet()) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(entry.getKey()).append(entry.getValue());
+        }
+        return result.toString();
+    }
+
+    /**
+     * A virtual object, identified by its index in the layout
+     */
+    static final class VirtualObject {
+
+        final String name;
+        final int index;
+        final List<VirtualObject> children = new ArrayList<VirtualObject>();
+
+        VirtualObject(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+package de.mw.jackson.wrapped;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.cfg.MapperConfigBase;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable per class information about {@link JsonWrapped}, computed once per class and shared by all mappers.
+ *
+ * Classes without any {@link JsonWrapped} annotation (on the class, its super types, fields or methods)
+ * are detected without looking at the properties of their serializers.
+ * The type level annotation is compiled once into a set of property names.
+ * Classes listed in the index of the {@code JsonWrappedProcessor} are not scanned by reflection, see {@link WrappingIndex}.
+ */
+final class WrappingPlan {
+
+    private static final ClassValue<WrappingPlan> PLANS = new ClassValue<WrappingPlan>() {
+        @Override
+        protected WrappingPlan computeValue(Class<?> type) {
+            return new WrappingPlan(isAnnotated(type));
+        }
+    };
+
+    private final boolean annotated;
+    private volatile TypeLevel typeLevel;
+
+    private WrappingPlan(boolean annotated) {
+        this.annotated = annotated;
+    }
+
+    /**
+     * Mix-ins may add annotations to any class, so plans are only shared when there are no mix-ins.
+     */
+    static WrappingPlan forType(MapperConfig<?> config, Class<?> type) {
+        if (config instanceof MapperConfigBase && ((MapperConfigBase<?, ?>) config).mixInCount() == 0) {
+            return PLANS.get(type);
+        }
+        return new WrappingPlan(true);
+    }
+
+    /**
+     * @return false if the type has definitely no properties to wrap
+     */
+    boolean mayNeedWrapping() {
+        return annotated;
+    }
+
+    /**
+     * @param annotation type level annotation as resolved by Jackson, might be null
+     * @return compiled type level annotation, null if there is none
+     */
+    TypeLevel typeLevel(JsonWrapped annotation) {
+        if (annotation == null) {
+            return null;
+        }
+        TypeLevel compiled = typeLevel;
+        if (compiled == null || compiled.annotation != annotation) {
+            compiled = new TypeLevel(annotation);
+            typeLevel = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiled type level configuration, i.e. the type level {@link JsonWrapped} annotation or the rules of {@link JsonWrappedModule#wrap}.
+     * Properties not configured here are looked up in the fallback.
+     */
+    static final class TypeLevel {
+
+        private final JsonWrapped annotation; // null for rules
+        private final Map<String, Group> groups; // key = property name
+        private final TypeLevel fallback;
+
+        private TypeLevel(JsonWrapped annotation) {
+            this.annotation = annotation;
+            this.groups = new HashMap<String, Group>();
+            this.fallback = null;
+            String virtualProperty = virtualPropertyPath(annotation.value());
+            if (virtualProperty != null) {
+                List<Class<?>> views = (annotation.views() == null || annotation.views().length == 0) ? Collections.<Class<?>>emptyList() : Arrays.<Class<?>>asList(annotation.views());
+                Group group = new Group(virtualProperty, views, annotation.omitIfEmpty(), annotation.cache());
+                for (String property : annotation.properties()) {
+                    groups.put(property, group);
+                }
+            }
+        }
+
+        /**
+         * @param groups key = property name
+         * @param fallback might be null
+         */
+        TypeLevel(Map<String, Group> groups, TypeLevel fallback) {
+            this.annotation = null;
+            this.groups = groups;
+            this.fallback = fallback;
+        }
+
+        /**
+         * @return this configuration with the given fallback, the given fallback if this is null
+         */
+        static TypeLevel withFallback(TypeLevel typeLevel, TypeLevel fallback) {
+            if (typeLevel == null) {
+                return fallback;
+            }
+            return fallback == null ? typeLevel : new TypeLevel(typeLevel.groups, fallback);
+        }
+
+        private Group group(String propName) {
+            Group group = groups.get(propName);
+            return (group == null && fallback != null) ? fallback.group(propName) : group;
+        }
+
+        /**
+         * @return name of the virtual property for the given property, null if it is not wrapped at type level
+         */
+        String getVirtualPropertyName(String propName) {
+            Group group = group(propName);
+            return group != null ? group.virtualProperty : null;
+        }
+
+        /**
+         * @return views of the virtual property for the given property, empty if it is not wrapped at type level
+         */
+        List<Class<?>> getVirtualPropertyViews(String propName) {
+            Group group = group(propName);
+            return group != null ? group.views : Collections.<Class<?>>emptyList();
+        }
+
+        /**
+         * @return whether the virtual property of the given property should be omitted if empty
+         */
+        boolean isOmitIfEmpty(String propName) {
+            Group group = group(propName);
+            return group != null && group.omitIfEmpty;
+        }
+
+        /**
+         * @return how the virtual property of the given property is cached
+         */
+        JsonWrapped.Cache getCache(String propName) {
+            Group group = group(propName);
+            return group != null ? group.cache : JsonWrapped.Cache.NONE;
+        }
+
+        /**
+         * @return names or dotted paths of all virtual properties, including those of the fallback
+         */
+        Set<String> getVirtualProperties() {
+            Set<String> virtualProperties = new HashSet<String>();
+            for (TypeLevel level = this; level != null; level = level.fallback) {
+                for (Group group : level.groups.values()) {
+                    virtualProperties.add(group.virtualProperty);
+                }
+            }
+            return virtualProperties;
+        }
+    }
+
+    /**
+     * Configuration of a virtual property at type level.
+     */
+    static final class Group {
+
+        private final String virtualProperty;
+        private final List<Class<?>> views;
+        private final boolean omitIfEmpty;
+        private final JsonWrapped.Cache cache;
+
+        /**
+         * @param virtualProperty normalized path, see {@link WrappingPlan#virtualPropertyPath(String)}
+         */
+        Group(String virtualProperty, List<Class<?>> views, boolean omitIfEmpty, JsonWrapped.Cache cache) {
+            this.virtualProperty = virtualProperty;
+            this.views = views;
+            this.omitIfEmpty = omitIfEmpty;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * @param value {@link JsonWrapped#value()}, name or dotted path of nested virtual properties
+     * @return path with trimmed names separated by dots, null if there is no name at all
+     */
+    static String virtualPropertyPath(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder path = new StringBuilder(value.length());
+        for (String name : value.split("\\.")) {
+            name = name.trim();
+            if (!name.isEmpty()) { // tolerate leading, trailing and double dots
+                if (path.length() > 0) {
+                    path.append('.');
+                }
+                path.append(name);
+            }
+        }
+        return path.length() > 0 ? path.toString() : null;
+    }
+
+    private static boolean isAnnotated(Class<?> type) {
+        try {
+            Set<Class<?>> visited = new HashSet<Class<?>>();
+            return isAnnotated(type, visited);
+        } catch (LinkageError e) { // be conservative if the class can not be fully introspected
+            return true;
+        } catch (SecurityException e) {
+            return true;
+        }
+    }
+
+    private static boolean isAnnotated(Class<?> type, Set<Class<?>> visited) {
+        if (type == null || type == Object.class || !visited.add(type)) {
+            return false;
+        }
+        Boolean indexed = WrappingIndex.declaresJsonWrapped(type);
+        if (indexed != null ? indexed : declaresJsonWrapped(type)) {
+            return true;
+        }
+        for (Class<?> iface : type.getInterfaces()) {
+            if (isAnnotated(iface, visited)) {
+                return true;
+            }
+        }
+        return isAnnotated(type.getSuperclass(), visited);
+    }
+
+    /**
+     * Scans the class itself by reflection, for classes not listed in the {@link WrappingIndex}
+     */
+    private static boolean declaresJsonWrapped(Class<?> type) {
+        if (hasJsonWrapped(type.getDeclaredAnnotations(), new HashSet<Class<?>>())) {
+            return true;
+        }
+        for (Field field : type.getDeclaredFields()) {
+            if (hasJsonWrapped(field.getDeclaredAnnotations(), new HashSet<Class<?>>())) {
+                return true;
+            }
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (hasJsonWrapped(method.getDeclaredAnnotations(), new HashSet<Class<?>>())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Also looks into annotation bundles ({@link JacksonAnnotationsInside})
+     */
+    private static boolean hasJsonWrapped(Annotation[] annotations, Set<Class<?>> visitedBundles) {
+        for (Annotation annotation : annotations) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType == JsonWrapped.class) {
+                return true;
+            }
+            if (annotationType.isAnnotationPresent(JacksonAnnotationsInside.class) && visitedBundles.add(annotationType)
+                    && hasJsonWrapped(annotationType.getDeclaredAnnotations(), visitedBundles)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
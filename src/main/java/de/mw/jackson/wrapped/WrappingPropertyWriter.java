@@ -2,44 +2,146 @@ package de.mw.jackson.wrapped;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.PropertyName;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.cfg.MapperConfig;
 import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
 import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
-import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.VirtualBeanPropertyWriter;
 import com.fasterxml.jackson.databind.util.Annotations;
 
 /**
- * VirtualBeanPropertyWriter that acts as a adapter for a "virtual" {@link BeanSerializer}.
+ * VirtualBeanPropertyWriter that acts as a adapter for a {@link VirtualObjectSerializer}.
+ * 
+ * The {@link VirtualObjectSerializer} is also the serializer of this property, 
+ * so format visitors (e.g. schema generators) see the wrapped properties and their types.
+ * If the virtual property is cached ({@link JsonWrapped#cache()}), the virtual object is written by a {@link FragmentCache}.
  */
 class WrappingPropertyWriter extends VirtualBeanPropertyWriter {
     
-    private BeanSerializer wrappedPropsSerializer;
-    private boolean wrappedPropsSerializerResolved;
+    private final VirtualObjectSerializer wrappedPropsSerializer;
+    private final boolean omitIfEmpty;
+    private final FragmentCache fragments; // null if not cached
             
     public WrappingPropertyWriter(BeanPropertyDefinition propDef, 
                                   Annotations contextAnnotations, 
                                   JavaType declaredType,
-                                  BeanSerializer wrappedPropsSerializer) {
+                                  Class<?>[] includeInViews,
+                                  VirtualObjectSerializer wrappedPropsSerializer,
+                                  boolean omitIfEmpty,
+                                  JsonWrapped.Cache cache) {
         
-        super(propDef, contextAnnotations, declaredType);
+        super(propDef, contextAnnotations, declaredType, null, null, null, propDef.findInclusion(), includeInViews);
         this.wrappedPropsSerializer = wrappedPropsSerializer;
+        this.omitIfEmpty = omitIfEmpty;
+        this.fragments = (cache == JsonWrapped.Cache.NONE ? null : new FragmentCache(wrappedPropsSerializer, cache));
+        assignSerializer(wrappedPropsSerializer);
+    }
+
+    WrappingPropertyWriter(WrappingPropertyWriter base, PropertyName name) {
+        super(base, name);
+        this.wrappedPropsSerializer = base.wrappedPropsSerializer;
+        this.omitIfEmpty = base.omitIfEmpty;
+        this.fragments = base.fragments; // same virtual object, only the name differs
+    }
+
+    @SuppressWarnings("unchecked")
+    WrappingPropertyWriter(WrappingPropertyWriter base, VirtualObjectSerializer wrappedPropsSerializer) {
+        super(base);
+        this.wrappedPropsSerializer = wrappedPropsSerializer;
+        this.omitIfEmpty = base.omitIfEmpty;
+        this.fragments = (base.fragments == null ? null : new FragmentCache(wrappedPropsSerializer, base.fragments.getMode()));
+        _serializer = (JsonSerializer<Object>) (JsonSerializer<?>) wrappedPropsSerializer;
+    }
+
+    /**
+     * Keeps this type for renamed copies, e.g. when the bean is unwrapped ({@link com.fasterxml.jackson.annotation.JsonUnwrapped})
+     */
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new WrappingPropertyWriter(this, newName);
     }
 
     @Override
     public void serializeAsField(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
+        if (isOmitted(value, jgen, provider)) {
+            serializeAsOmittedField(value, jgen, provider);
+            return;
+        }
+        serializeField(value, jgen, provider);
+    }
+
+    /**
+     * @return whether the virtual object of the bean is left out as empty ({@link JsonWrapped#omitIfEmpty()})
+     */
+    boolean isOmitted(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
+        return omitIfEmpty && wrappedPropsSerializer.isEmpty(value, jgen, provider);
+    }
+
+    /**
+     * Writes the name and the virtual object, without checking if it is omitted
+     */
+    void serializeField(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
         jgen.writeFieldName(_name);
-        serializeAsElement(value, jgen, provider);
+        serializeVirtualObject(value, jgen, provider);
     }
 
     @Override
     public void serializeAsElement(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
-        if (!wrappedPropsSerializerResolved) { // workaround for wrapped BeanSerializer is not resolved as it is hidden here inside
-            wrappedPropsSerializer.resolve(provider);
-            wrappedPropsSerializerResolved = true;
+        serializeVirtualObject(value, jgen, provider);
+    }
+
+    private void serializeVirtualObject(Object value, JsonGenerator jgen, SerializerProvider provider) throws Exception {
+        if (fragments != null) {
+            fragments.serialize(value, jgen, provider);
+        } else {
+            wrappedPropsSerializer.serialize(value, jgen, provider);
         }
-        wrappedPropsSerializer.serialize(value, jgen, provider);
+    }
+
+    /**
+     * Resolves the hidden {@link VirtualObjectSerializer}, called by the {@link WrappingBeanSerializer} owning this property
+     */
+    void resolve(SerializerProvider provider) throws JsonMappingException {
+        wrappedPropsSerializer.resolve(provider);
+    }
+
+    /**
+     * @param projection projection of this virtual property, not complete
+     * @return copy writing only the selected properties, null if none of the wrapped properties is selected
+     */
+    WrappingPropertyWriter project(Projection projection) {
+        VirtualObjectSerializer projected = wrappedPropsSerializer.project(projection);
+        return projected == null ? null : withWrappedPropertiesSerializer(projected);
+    }
+
+    /**
+     * Keeps this type for projected copies
+     */
+    protected WrappingPropertyWriter withWrappedPropertiesSerializer(VirtualObjectSerializer wrappedPropsSerializer) {
+        return new WrappingPropertyWriter(this, wrappedPropsSerializer);
+    }
+
+    /**
+     * @return whether none of the wrapped properties is included in the view
+     */
+    boolean isEmptyInView(Class<?> activeView) {
+        return wrappedPropsSerializer.isEmptyInView(activeView);
+    }
+
+    boolean isOmitIfEmpty() {
+        return omitIfEmpty;
+    }
+
+    JsonWrapped.Cache getCacheMode() {
+        return fragments == null ? JsonWrapped.Cache.NONE : fragments.getMode();
+    }
+
+    VirtualObjectSerializer getWrappedPropertiesSerializer() {
+        return wrappedPropsSerializer;
     }
 
     @Override
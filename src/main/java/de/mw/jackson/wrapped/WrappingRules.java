@@ -0,0 +1,105 @@
+package de.mw.jackson.wrapped;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wrapping rules declared by {@link JsonWrappedModule#wrap}, for types that can not be annotated.
+ *
+ * A rule works like a {@link JsonWrapped} annotation on type level of its type and all subtypes,
+ * but a type may have rules for multiple virtual properties.
+ * Rules of a subtype have precedence over rules of its super types, rules have precedence over the type level annotation
+ * and annotations on property level have precedence over rules.
+ *
+ * The rules of a type (including the rules of its super types) are compiled once into a {@link WrappingPlan.TypeLevel}.
+ */
+final class WrappingRules {
+
+    private final Map<Class<?>, Map<String, WrappingPlan.Group>> rules = new ConcurrentHashMap<Class<?>, Map<String, WrappingPlan.Group>>();
+
+    private final ClassValue<Compiled> compiled = new ClassValue<Compiled>() {
+        @Override
+        protected Compiled computeValue(Class<?> type) {
+            return new Compiled(compile(type));
+        }
+    };
+
+    /**
+     * Must be called before the rules are used, i.e. before the module is registered.
+     *
+     * @throws IllegalArgumentException if the name of the virtual property or the properties are missing
+     */
+    void add(Class<?> type, String virtualProperty, Class<?>[] views, boolean omitIfEmpty, String... properties) {
+        String path = WrappingPlan.virtualPropertyPath(virtualProperty);
+        if (type == null || path == null || properties == null || properties.length == 0) {
+            throw new IllegalArgumentException("type, name of the virtual property and properties are required");
+        }
+        List<Class<?>> viewList = (views == null || views.length == 0) ? Collections.<Class<?>>emptyList() : Arrays.<Class<?>>asList(views.clone());
+        WrappingPlan.Group group = new WrappingPlan.Group(path, viewList, omitIfEmpty, JsonWrapped.Cache.NONE);
+        Map<String, WrappingPlan.Group> groups = rules.get(type);
+        if (groups == null) {
+            groups = new HashMap<String, WrappingPlan.Group>();
+            rules.put(type, groups);
+        }
+        for (String property : properties) {
+            groups.put(property, group);
+        }
+    }
+
+    /**
+     * @return compiled rules of the type and its super types, null if there are none
+     */
+    WrappingPlan.TypeLevel typeLevel(Class<?> type) {
+        return rules.isEmpty() ? null : compiled.get(type).typeLevel;
+    }
+
+    /**
+     * Visits the type and its super types breadth first, thus rules of subtypes are found first.
+     */
+    private WrappingPlan.TypeLevel compile(Class<?> type) {
+        Map<String, WrappingPlan.Group> groups = new HashMap<String, WrappingPlan.Group>();
+        Set<Class<?>> visited = new HashSet<Class<?>>();
+        Deque<Class<?>> pending = new ArrayDeque<Class<?>>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            Class<?> current = pending.removeFirst();
+            if (!visited.add(current)) {
+                continue;
+            }
+            Map<String, WrappingPlan.Group> declared = rules.get(current);
+            if (declared != null) {
+                for (Map.Entry<String, WrappingPlan.Group> rule : declared.entrySet()) {
+                    if (!groups.containsKey(rule.getKey())) {
+                        groups.put(rule.getKey(), rule.getValue());
+                    }
+                }
+            }
+            if (current.getSuperclass() != null) {
+                pending.add(current.getSuperclass());
+            }
+            pending.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        return groups.isEmpty() ? null : new WrappingPlan.TypeLevel(groups, null);
+    }
+
+    /**
+     * Holder, a {@link ClassValue} can not hold null
+     */
+    private static final class Compiled {
+
+        private final WrappingPlan.TypeLevel typeLevel;
+
+        private Compiled(WrappingPlan.TypeLevel typeLevel) {
+            this.typeLevel = typeLevel;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package de.mw.jackson.wrapped;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events, compiled for JDK 11 into the multi-release jar and only loaded by {@link JfrSupport}
+ * which guards against a missing JFR API.
+ */
+final class JfrEvents implements JfrSupport.Recorder {
+    
+    private static final EventType SERIALIZATION = EventType.getEventType(VirtualPropertySerializationEvent.class);
+    private static final SerializationSampler SAMPLER = new SerializationSampler();
+    
+    JfrEvents() { // loaded reflectively
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+    
+    @Override
+    public Object beginSerializerConstruction() {
+        SerializerConstructionEvent event = new SerializerConstructionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    @Override
+    public void commitSerializerConstruction(Object handle, Class<?> beanType, boolean wrapped, long planNanos, long wrapNanos) {
+        SerializerConstructionEvent event = (SerializerConstructionEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.beanType = beanType;
+            event.wrapped = wrapped;
+            event.planTime = planNanos;
+            event.wrapTime = wrapNanos;
+            event.commit();
+        }
+    }
+    
+    @Override
+    public JsonWrappedListener withSerializationEvents(final JsonWrappedListener listener) {
+        if (!SERIALIZATION.isEnabled()) {
+            return listener;
+        }
+        if (listener == null) {
+            return SAMPLER;
+        }
+        return new JsonWrappedListener() {
+            @Override
+            public void virtualPropertySerialized(Class<?> beanType, String virtualProperty, long nanos, long bytes) {
+                SAMPLER.virtualPropertySerialized(beanType, virtualProperty, nanos, bytes);
+                listener.virtualPropertySerialized(beanType, virtualProperty, nanos, bytes);
+            }
+        };
+    }
+    
+    private static final class SerializationSampler implements JfrSupport.SamplingListener {
+        
+        @Override
+        public boolean isRecording() {
+            return SERIALIZATION.isEnabled();
+        }
+        
+        @Override
+        public void virtualPropertySerialized(Class<?> beanType, String virtualProperty, long nanos, long bytes) {
+            boolean slow = nanos >= JfrSupport.SLOW_NANOS;
+            if (slow || ThreadLocalRandom.current().nextInt(JfrSupport.SAMPLE_RATE) == 0) {
+                VirtualPropertySerializationEvent event = new VirtualPropertySerializationEvent();
+                if (event.isEnabled()) {
+                    event.beanType = beanType;
+                    event.virtualProperty = virtualProperty;
+                    event.serializationTime = nanos;
+                    event.bytes = bytes;
+                    event.sampled = !slow;
+                    event.commit();
+                }
+            }
+        }
+    }
+    
+    @Name("de.mw.jackson.wrapped.SerializerConstruction")
+    @Label("Wrapping Serializer Construction")
+    @Description("Construction of a bean serializer by the JsonWrappedModule, including the check for @JsonWrapped annotations")
+    @Category({ "Jackson", "JsonWrapped" })
+    static class SerializerConstructionEvent extends Event {
+        
+        @Label("Bean Type")
+        Class<?> beanType;
+        
+        @Label("Wrapped")
+        @Description("Whether the serializer has virtual properties")
+        boolean wrapped;
+        
+        @Label("Plan Time")
+        @Description("Time spent to check the bean type for @JsonWrapped annotations")
+        @Timespan(Timespan.NANOSECONDS)
+        long planTime;
+        
+        @Label("Wrap Time")
+        @Description("Time spent to group the properties into virtual properties")
+        @Timespan(Timespan.NANOSECONDS)
+        long wrapTime;
+    }
+    
+    @Name("de.mw.jackson.wrapped.VirtualPropertySerialization")
+    @Label("Virtual Property Serialization")
+    @Description("Sampled serialization of a virtual property, slow serializations are always recorded")
+    @Category({ "Jackson", "JsonWrapped" })
+    @StackTrace(false)
+    static class VirtualPropertySerializationEvent extends Event {
+        
+        @Label("Bean Type")
+        Class<?> beanType;
+        
+        @Label("Virtual Property")
+        String virtualProperty;
+        
+        @Label("Serialization Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long serializationTime;
+        
+        @Label("Written")
+        @Description("Output written for the virtual property, -1 if unknown")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+        
+        @Label("Sampled")
+        @Description("Recorded by sampling, otherwise because it was slow")
+        boolean sampled;
+    }
+    
+}
@@ -0,0 +1,144 @@
+package de.mw.jackson.wrapped;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor writing the index of {@link JsonWrapped} types (read by {@code WrappingIndex}) at compile time,
+ * thus the annotations of these classes are not scanned by reflection at runtime.
+ *
+ * Every class of the compilation is listed, marked whether it itself (not its super types) declares a {@link JsonWrapped} annotation
+ * on the class, a field or a method, also inside of annotation bundles. Super types are combined at runtime,
+ * thus the index stays valid if classes of other libraries change. Classes not listed are scanned at runtime.
+ *
+ * The processor ships separately as artifact with classifier {@code processor} (only depending on the JDK), 
+ * it is not part of the runtime jar, thus it only runs if it is explicitly put on the processor path.
+ */
+@SupportedAnnotationTypes("*")
+public class JsonWrappedProcessor extends AbstractProcessor {
+
+    private static final String JSON_WRAPPED = "de.mw.jackson.wrapped.JsonWrapped";
+    private static final String RESOURCE = "META-INF/jackson-wrapped.index"; // see WrappingIndex
+    private static final char DECLARES_JSON_WRAPPED = '+';
+    private static final char DECLARES_NO_JSON_WRAPPED = '-';
+    private static final String ANNOTATIONS_INSIDE = "com.fasterxml.jackson.annotation.JacksonAnnotationsInside"; // not necessarily on the processor path
+
+    private final Map<String, Boolean> types = new TreeMap<String, Boolean>(); // sorted for reproducible builds, value = declares JsonWrapped
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * Never claims any annotation, other processors see all of them.
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!types.isEmpty()) {
+                writeIndex();
+            }
+        } else {
+            for (Element element : roundEnv.getRootElements()) {
+                collect(element);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Member types are listed too, local and anonymous classes are not (they are scanned at runtime).
+     */
+    private void collect(Element element) {
+        if (!(element instanceof TypeElement) || element.getKind() == ElementKind.ANNOTATION_TYPE) {
+            return;
+        }
+        TypeElement type = (TypeElement) element;
+        types.put(processingEnv.getElementUtils().getBinaryName(type).toString(), declaresJsonWrapped(type));
+        for (Element member : type.getEnclosedElements()) {
+            collect(member);
+        }
+    }
+
+    /**
+     * Same members as inspected by reflection in {@link WrappingPlan}
+     */
+    private boolean declaresJsonWrapped(TypeElement type) {
+        if (hasJsonWrapped(type.getAnnotationMirrors(), new HashSet<String>())) {
+            return true;
+        }
+        for (Element member : type.getEnclosedElements()) {
+            ElementKind kind = member.getKind();
+            if ((kind == ElementKind.FIELD || kind == ElementKind.ENUM_CONSTANT || kind == ElementKind.METHOD)
+                    && hasJsonWrapped(member.getAnnotationMirrors(), new HashSet<String>())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasJsonWrapped(List<? extends AnnotationMirror> annotations, Set<String> visitedBundles) {
+        for (AnnotationMirror annotation : annotations) {
+            Element annotationType = annotation.getAnnotationType().asElement();
+            if (!(annotationType instanceof TypeElement)) {
+                continue;
+            }
+            String name = ((TypeElement) annotationType).getQualifiedName().toString();
+            if (name.equals(JSON_WRAPPED)) {
+                return true;
+            }
+            if (isBundle(annotationType) && visitedBundles.add(name) && hasJsonWrapped(annotationType.getAnnotationMirrors(), visitedBundles)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBundle(Element annotationType) {
+        for (AnnotationMirror annotation : annotationType.getAnnotationMirrors()) {
+            Element element = annotation.getAnnotationType().asElement();
+            if (element instanceof TypeElement && ((TypeElement) element).getQualifiedName().contentEquals(ANNOTATIONS_INSIDE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The index is optional, if it can not be written the classes are scanned at runtime.
+     */
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# generated by " + JsonWrappedProcessor.class.getName() + "\n");
+                for (Map.Entry<String, Boolean> type : types.entrySet()) {
+                    writer.write((type.getValue() ? DECLARES_JSON_WRAPPED : DECLARES_NO_JSON_WRAPPED) + type.getKey() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.WARNING, "index of @JsonWrapped types not written: " + e);
+        }
+    }
+
+}
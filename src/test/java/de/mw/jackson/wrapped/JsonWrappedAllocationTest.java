@@ -0,0 +1,164 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Guards the hot path: serializing a wrapped bean must not allocate more than serializing the same flat bean.
+ *
+ * Both are written to the same generator, so only the allocations per call of the serializers are compared.
+ */
+public class JsonWrappedAllocationTest {
+
+    private static final int WARMUP = 20000;
+    private static final int CALLS = 10000;
+    private static final long TOLERANCE_PER_CALL = 4; // bytes, below any object allocation
+
+    private static interface PublicView {}
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private ObjectMapper mapper;
+    private JsonGenerator gen;
+
+    public static class Flat {
+        public int age = 18;
+        public String first = "Joey";
+        public String last = "Sixpack";
+        public String street = "Sunset boulevard";
+        public String city = "Heaven";
+    }
+
+    public static class Wrapped {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("person.address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("person.address")
+        public String city = "Heaven";
+    }
+
+    @JsonView(PublicView.class)
+    public static class FlatWithViews extends Flat {
+    }
+
+    @JsonView(PublicView.class)
+    public static class WrappedWithViews extends Wrapped {
+    }
+
+    @JsonFilter("filter")
+    public static class FlatWithFilter extends Flat {
+    }
+
+    @JsonFilter("filter")
+    public static class WrappedWithFilter extends Wrapped {
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class FlatWithNulls {
+        public int age = 18;
+        public String first = null;
+        public String last = null;
+        public String street = "Sunset boulevard";
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class OmitIfEmpty {
+        public int age = 18;
+        @JsonWrapped(value = "name", omitIfEmpty = true)
+        public String first = null;
+        @JsonWrapped(value = "name", omitIfEmpty = true)
+        public String last = null;
+        @JsonWrapped(value = "address", omitIfEmpty = true)
+        public String street = "Sunset boulevard";
+    }
+
+    @Before
+    public void setup() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        mapper.setFilterProvider(new SimpleFilterProvider().addFilter("filter", SimpleBeanPropertyFilter.serializeAllExcept("age")));
+        gen = mapper.createGenerator(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (gen != null) {
+            gen.close();
+        }
+    }
+
+    @Test
+    public void jsonWrapped_allocates_asFlatBean() throws IOException {
+        assertAllocatesAsFlat(mapper.writer(), new Flat(), new Wrapped());
+    }
+
+    @Test
+    public void jsonWrapped_allocates_asFlatBean_withActiveView() throws IOException {
+        assertAllocatesAsFlat(mapper.writerWithView(PublicView.class), new FlatWithViews(), new WrappedWithViews());
+    }
+
+    @Test
+    public void jsonWrapped_allocates_asFlatBean_withFilter() throws IOException {
+        assertAllocatesAsFlat(mapper.writer(), new FlatWithFilter(), new WrappedWithFilter());
+    }
+
+    @Test
+    public void jsonWrapped_omitIfEmpty_allocates_asFlatBean() throws IOException {
+        assertAllocatesAsFlat(mapper.writer(), new FlatWithNulls(), new OmitIfEmpty());
+    }
+
+    private void assertAllocatesAsFlat(ObjectWriter writer, Object flat, Object wrapped) throws IOException {
+        allocatedBytes(writer, flat, WARMUP);
+        allocatedBytes(writer, wrapped, WARMUP);
+
+        long flatBytes = allocatedBytes(writer, flat, CALLS);
+        long wrappedBytes = allocatedBytes(writer, wrapped, CALLS);
+
+        assertTrue("wrapped bean allocated " + wrappedBytes + " bytes, flat bean " + flatBytes + " bytes for " + CALLS + " calls",
+                wrappedBytes <= flatBytes + TOLERANCE_PER_CALL * CALLS);
+    }
+
+    private long allocatedBytes(ObjectWriter writer, Object value, int calls) throws IOException {
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            writer.writeValue(gen, value);
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+}
@@ -0,0 +1,196 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+
+public class JsonWrappedBinaryFormatsTest {
+
+    private static final int CBOR_INDEFINITE_MAP = 0xBF;
+    private static final int CBOR_MAP = 0xA0; // plus size up to 23
+
+    private static interface PublicView {}
+    private static interface InternalView {}
+
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("person.address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("person")
+        public String city = "Heaven";
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class NonNullPerson {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = null;
+    }
+
+    public static class ViewPerson {
+        public int age = 18;
+        @JsonWrapped("name")
+        @JsonView(PublicView.class)
+        public String first = "Joey";
+        @JsonWrapped("name")
+        @JsonView(InternalView.class)
+        public String last = "Sixpack";
+    }
+
+    @JsonFilter("filter")
+    public static class FilteredPerson extends ViewPerson {
+    }
+
+    public static class OmitIfEmptyPerson {
+        @JsonWrapped("person")
+        public int age = 18;
+        @JsonWrapped(value = "person.name", omitIfEmpty = true)
+        @JsonInclude(Include.NON_NULL)
+        public String first = "Joey";
+    }
+
+    @Before
+    public void setup() {
+        cbor = new ObjectMapper(new CBORFactory()).registerModule(new JsonWrappedModule());
+        cbor.setFilterProvider(new SimpleFilterProvider().addFilter("filter", SimpleBeanPropertyFilter.serializeAllExcept("age")));
+        smile = new ObjectMapper(new SmileFactory()).registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_cbor_writes_definiteLengthVirtualObjects() throws IOException {
+        byte[] result = cbor.writeValueAsBytes(new Person());
+
+        assertEquals(CBOR_MAP + 2, mapAfterName(result, "name"));
+        assertEquals(CBOR_MAP + 2, mapAfterName(result, "person"));
+        assertEquals(CBOR_MAP + 1, mapAfterName(result, "address"));
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"person\":{\"city\":\"Heaven\",\"address\":{\"street\":\"Sunset boulevard\"}}}",
+                new ObjectMapper().writeValueAsString(cbor.readTree(result)));
+    }
+
+    @Test
+    public void jsonWrapped_cbor_writes_indefiniteLength_ifPropertiesMayBeSkipped() throws IOException {
+        byte[] result = cbor.writeValueAsBytes(new NonNullPerson());
+
+        assertEquals(CBOR_INDEFINITE_MAP, mapAfterName(result, "name"));
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", new ObjectMapper().writeValueAsString(cbor.readTree(result)));
+    }
+
+    @Test
+    public void jsonWrapped_cbor_writes_indefiniteLength_ifVirtualObjectMayBeOmitted() throws IOException {
+        byte[] result = cbor.writeValueAsBytes(new OmitIfEmptyPerson());
+
+        assertEquals(CBOR_INDEFINITE_MAP, mapAfterName(result, "person"));
+        assertEquals(CBOR_INDEFINITE_MAP, mapAfterName(result, "name"));
+        assertEquals("{\"person\":{\"age\":18,\"name\":{\"first\":\"Joey\"}}}", new ObjectMapper().writeValueAsString(cbor.readTree(result)));
+    }
+
+    @Test
+    public void jsonWrapped_cbor_writes_definiteLength_perView() throws IOException {
+        byte[] result = cbor.writerWithView(PublicView.class).writeValueAsBytes(new ViewPerson());
+        byte[] resultWithoutView = cbor.writeValueAsBytes(new ViewPerson());
+
+        assertEquals(CBOR_MAP + 1, mapAfterName(result, "name"));
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", new ObjectMapper().writeValueAsString(cbor.readTree(result)));
+        assertEquals(CBOR_MAP + 2, mapAfterName(resultWithoutView, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_cbor_writes_indefiniteLength_withFilter() throws IOException {
+        byte[] result = cbor.writeValueAsBytes(new FilteredPerson());
+
+        assertEquals(CBOR_INDEFINITE_MAP, mapAfterName(result, "name"));
+        assertEquals("{\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"}}", new ObjectMapper().writeValueAsString(cbor.readTree(result)));
+    }
+
+    @Test
+    public void jsonWrapped_cbor_reads_serializedBean() throws IOException {
+        Person result = cbor.readValue(cbor.writeValueAsBytes(new Person()), Person.class);
+
+        assertEquals("Sixpack", result.last);
+        assertEquals("Sunset boulevard", result.street);
+        assertEquals("Heaven", result.city);
+    }
+
+    @Test
+    public void jsonWrapped_smile_backReferences_virtualPropertyNames() throws IOException {
+        List<Person> persons = new ArrayList<Person>();
+        for (int i = 0; i < 10; i++) {
+            persons.add(new Person());
+        }
+
+        byte[] result = smile.writeValueAsBytes(persons);
+
+        assertEquals(1, occurrences(result, "address"));
+        assertEquals(1, occurrences(result, "person"));
+        assertEquals(1, occurrences(result, "street"));
+        List<Person> read = smile.readValue(result, new TypeReference<List<Person>>() {});
+        assertEquals(10, read.size());
+        assertEquals("Sunset boulevard", read.get(9).street);
+        assertEquals("Heaven", read.get(9).city);
+    }
+
+    /**
+     * @return initial byte of the map following the first field name
+     */
+    private static int mapAfterName(byte[] cborData, String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        byte[] field = new byte[encoded.length + 1];
+        field[0] = (byte) (0x60 + encoded.length); // short text string
+        System.arraycopy(encoded, 0, field, 1, encoded.length);
+        int index = indexOf(cborData, field, 0);
+        assertTrue("field " + name + " not found", index >= 0);
+        return cborData[index + field.length] & 0xFF;
+    }
+
+    private static int occurrences(byte[] data, String text) {
+        byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int index = indexOf(data, pattern, 0); index >= 0; index = indexOf(data, pattern, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,106 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stress test for the first use of wrapping serializers by many threads at once.
+ */
+public class JsonWrappedConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 50;
+
+    private static final String EXPECTED = "{\"id\":1,"
+            + "\"people\":{"
+                + "\"person\":{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\",\"zip\":\"12345\"}},"
+                + "\"partner\":{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\",\"zip\":\"12345\"}}"
+            + "},"
+            + "\"extra\":{\"tags\":[\"a\",\"b\"]}}";
+
+    private ExecutorService executor;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("address")
+        public String city = "Heaven";
+        @JsonWrapped("address")
+        public Object zip = "12345";
+    }
+
+    public static class Family {
+        public int id = 1;
+        @JsonWrapped("people")
+        public Person person = new Person();
+        @JsonWrapped("people")
+        public Person partner = new Person();
+
+        @JsonAnyGetter
+        @JsonWrapped("extra")
+        public Map<String, Object> any() {
+            Map<String, Object> any = new LinkedHashMap<String, Object>();
+            List<String> tags = new ArrayList<String>();
+            tags.add("a");
+            tags.add("b");
+            any.put("tags", tags);
+            return any;
+        }
+    }
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void jsonWrapped_firstUse_isThreadSafe() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+
+            List<Future<String>> results = new ArrayList<Future<String>>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        barrier.await();
+                        return mapper.writeValueAsString(new Family());
+                    }
+                }));
+            }
+
+            for (Future<String> result : results) {
+                assertEquals(EXPECTED, result.get());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+
+public class JsonWrappedDeserializationTest {
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age;
+        @JsonWrapped("name")
+        public String first;
+        @JsonWrapped("name")
+        public String last;
+        @JsonWrapped("address")
+        public String street;
+        @JsonWrapped("address")
+        public List<String> lines;
+    }
+
+    @JsonWrapped(value = "name", properties = {"first", "last"})
+    public static class TypeLevelPerson {
+        public int age;
+        public String first;
+        public String last;
+    }
+
+    public static class PathPerson {
+        public int age;
+        @JsonWrapped("meta.audit")
+        public String created;
+        @JsonWrapped("meta")
+        public int version;
+        @JsonWrapped("meta.audit")
+        public Person createdBy;
+    }
+
+    public static class CreatorPerson {
+        private final int age;
+        @JsonWrapped("name")
+        private final String first;
+        @JsonWrapped("name")
+        private final String last;
+
+        @JsonCreator
+        public CreatorPerson(@JsonProperty("age") int age, @JsonProperty("first") String first, @JsonProperty("last") String last) {
+            this.age = age;
+            this.first = first;
+            this.last = last;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getLast() {
+            return last;
+        }
+    }
+
+    @JsonDeserialize(builder = BuiltPerson.Builder.class)
+    public static class BuiltPerson {
+        private final int age;
+        private final String first;
+
+        private BuiltPerson(int age, String first) {
+            this.age = age;
+            this.first = first;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        @JsonWrapped("name")
+        public String getFirst() {
+            return first;
+        }
+
+        @JsonPOJOBuilder(withPrefix = "")
+        public static class Builder {
+            private int age;
+            private String first;
+
+            public Builder age(int age) {
+                this.age = age;
+                return this;
+            }
+
+            public Builder first(String first) {
+                this.first = first;
+                return this;
+            }
+
+            public BuiltPerson build() {
+                return new BuiltPerson(age, first);
+            }
+        }
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+    @JsonSubTypes(@JsonSubTypes.Type(value = TypedPerson.class, name = "person"))
+    public static abstract class Typed {
+    }
+
+    public static class TypedPerson extends Typed {
+        public int age;
+        @JsonWrapped("name")
+        public String first;
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_reads_propertiesOfVirtualProperties() throws IOException {
+        Person result = mapper.readValue("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"lines\":[\"a\",\"b\"]}}", Person.class);
+
+        assertEquals(18, result.age);
+        assertEquals("Joey", result.first);
+        assertEquals("Sixpack", result.last);
+        assertEquals("Sunset boulevard", result.street);
+        assertEquals(2, result.lines.size());
+    }
+
+    @Test
+    public void jsonWrapped_reads_serializedBean() throws IOException {
+        Person person = new Person();
+        person.age = 18;
+        person.first = "Joey";
+        person.street = "Sunset boulevard";
+        String json = mapper.writeValueAsString(person);
+
+        String result = mapper.writeValueAsString(mapper.readValue(json, Person.class));
+
+        assertEquals(json, result);
+    }
+
+    @Test
+    public void jsonWrapped_reads_flatProperties() throws IOException {
+        Person result = mapper.readValue("{\"age\":18,\"first\":\"Joey\",\"name\":{\"last\":\"Sixpack\"}}", Person.class);
+
+        assertEquals("Joey", result.first);
+        assertEquals("Sixpack", result.last);
+    }
+
+    @Test
+    public void jsonWrapped_reads_nullAndEmptyVirtualProperties() throws IOException {
+        Person result = mapper.readValue("{\"name\":null,\"age\":18,\"address\":{}}", Person.class);
+
+        assertEquals(18, result.age);
+        assertNull(result.first);
+        assertNull(result.street);
+    }
+
+    @Test(expected = MismatchedInputException.class)
+    public void jsonWrapped_fails_forVirtualPropertyWithoutObject() throws IOException {
+        mapper.readValue("{\"age\":18,\"name\":\"Joey\"}", Person.class);
+    }
+
+    @Test
+    public void jsonWrapped_atTypeLevel_reads_propertiesOfVirtualProperty() throws IOException {
+        TypeLevelPerson result = mapper.readValue("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"}}", TypeLevelPerson.class);
+
+        assertEquals(18, result.age);
+        assertEquals("Joey", result.first);
+        assertEquals("Sixpack", result.last);
+    }
+
+    @Test
+    public void jsonWrapped_reads_propertiesInPath() throws IOException {
+        PathPerson result = mapper.readValue("{\"age\":18,\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\","
+                + "\"createdBy\":{\"age\":42,\"name\":{\"first\":\"Joey\"}}}}}", PathPerson.class);
+
+        assertEquals(18, result.age);
+        assertEquals(3, result.version);
+        assertEquals("today", result.created);
+        assertEquals(42, result.createdBy.age);
+        assertEquals("Joey", result.createdBy.first);
+    }
+
+    @Test
+    public void jsonWrapped_reads_propertiesOfCreator() throws IOException {
+        CreatorPerson result = mapper.readValue("{\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"age\":18}", CreatorPerson.class);
+
+        assertEquals(18, result.getAge());
+        assertEquals("Joey", result.getFirst());
+        assertEquals("Sixpack", result.getLast());
+    }
+
+    @Test
+    public void jsonWrapped_reads_propertiesOfBuilder() throws IOException {
+        BuiltPerson result = mapper.readValue("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", BuiltPerson.class);
+
+        assertEquals(18, result.getAge());
+        assertEquals("Joey", result.getFirst());
+    }
+
+    @Test
+    public void jsonWrapped_updates_existingBean() throws IOException {
+        Person person = new Person();
+        person.age = 18;
+        person.first = "Joey";
+
+        Person result = mapper.readerForUpdating(person).readValue("{\"name\":{\"last\":\"Sixpack\"}}");
+
+        assertSame(person, result);
+        assertEquals(18, result.age);
+        assertEquals("Joey", result.first);
+        assertEquals("Sixpack", result.last);
+    }
+
+    @Test
+    public void jsonWrapped_reads_polymorphicBean() throws IOException {
+        Typed result = mapper.readValue("{\"name\":{\"first\":\"Joey\"},\"type\":\"person\",\"age\":18}", Typed.class);
+
+        assertEquals(18, ((TypedPerson) result).age);
+        assertEquals("Joey", ((TypedPerson) result).first);
+    }
+
+    @Test
+    public void jsonWrapped_reads_polymorphicBean_withTypeFirst() throws IOException {
+        Typed result = mapper.readValue("{\"type\":\"person\",\"name\":{\"first\":\"Joey\"},\"age\":18}", Typed.class);
+
+        assertEquals(18, ((TypedPerson) result).age);
+        assertEquals("Joey", ((TypedPerson) result).first);
+    }
+
+}
@@ -0,0 +1,193 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+
+public class JsonWrappedFragmentCacheTest {
+
+    private static final AtomicInteger SERIALIZED = new AtomicInteger();
+
+    private static interface PublicView {}
+    private static interface InternalView {}
+
+    private ObjectMapper mapper;
+
+    public static class CountingSerializer extends JsonSerializer<String> {
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            SERIALIZED.incrementAndGet();
+            gen.writeString(value);
+        }
+    }
+
+    public static class LineItem {
+        public int quantity = 1;
+        @JsonWrapped(value = "currency", cache = JsonWrapped.Cache.VALUES)
+        public String code = "EUR";
+        @JsonWrapped("currency")
+        @JsonSerialize(using = CountingSerializer.class)
+        public String symbol = "\u20ac";
+        @JsonWrapped("currency")
+        public int scale = 2;
+
+        public LineItem() {
+        }
+
+        public LineItem(String code, String symbol) {
+            this.code = code;
+            this.symbol = symbol;
+        }
+    }
+
+    public static class Currency {
+        @JsonWrapped(value = "currency", cache = JsonWrapped.Cache.INSTANCE)
+        @JsonSerialize(using = CountingSerializer.class)
+        public String code = "EUR";
+        @JsonWrapped("currency.format")
+        public int scale = 2;
+    }
+
+    public static class ViewItem {
+        @JsonWrapped(value = "currency", cache = JsonWrapped.Cache.VALUES)
+        @JsonView(PublicView.class)
+        public String code = "EUR";
+        @JsonWrapped("currency")
+        @JsonView(InternalView.class)
+        @JsonSerialize(using = CountingSerializer.class)
+        public String symbol = "\u20ac";
+    }
+
+    @Before
+    public void setup() {
+        SERIALIZED.set(0);
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_cache_byValues() throws IOException {
+        String result = mapper.writeValueAsString(Arrays.asList(new LineItem(), new LineItem(), new LineItem("USD", "$"), new LineItem()));
+
+        assertEquals("[{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\u20ac\",\"scale\":2}},"
+                + "{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\u20ac\",\"scale\":2}},"
+                + "{\"quantity\":1,\"currency\":{\"code\":\"USD\",\"symbol\":\"$\",\"scale\":2}},"
+                + "{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\u20ac\",\"scale\":2}}]", result);
+        assertEquals(2, SERIALIZED.get());
+        assertEquals(result, new String(mapper.writeValueAsBytes(Arrays.asList(new LineItem(), new LineItem(), new LineItem("USD", "$"), new LineItem())), "UTF-8"));
+        assertEquals(2, SERIALIZED.get()); // same fragments for bytes
+    }
+
+    @Test
+    public void jsonWrapped_cache_byInstance() throws IOException {
+        Currency currency = new Currency();
+
+        String result = mapper.writeValueAsString(Arrays.asList(currency, currency, new Currency()));
+
+        assertEquals("[{\"currency\":{\"code\":\"EUR\",\"format\":{\"scale\":2}}},{\"currency\":{\"code\":\"EUR\",\"format\":{\"scale\":2}}},"
+                + "{\"currency\":{\"code\":\"EUR\",\"format\":{\"scale\":2}}}]", result);
+        assertEquals(2, SERIALIZED.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_byInstance_doesNotKeepBeans() throws IOException, InterruptedException {
+        Currency currency = new Currency();
+        mapper.writeValueAsString(currency);
+        WeakReference<Currency> reference = new WeakReference<Currency>(currency);
+
+        currency = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_perView() throws IOException {
+        assertEquals("{\"currency\":{\"code\":\"EUR\"}}", mapper.writerWithView(PublicView.class).writeValueAsString(new ViewItem()));
+        assertEquals("{\"currency\":{\"symbol\":\"\u20ac\"}}", mapper.writerWithView(InternalView.class).writeValueAsString(new ViewItem()));
+        assertEquals("{\"currency\":{\"symbol\":\"\u20ac\"}}", mapper.writerWithView(InternalView.class).writeValueAsString(new ViewItem()));
+        assertEquals(1, SERIALIZED.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_perGeneratorFeatures() throws IOException {
+        assertEquals("{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\u20ac\",\"scale\":2}}", mapper.writeValueAsString(new LineItem()));
+        assertEquals("{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\\u20AC\",\"scale\":2}}",
+                mapper.writer().with(JsonWriteFeature.ESCAPE_NON_ASCII).writeValueAsString(new LineItem()));
+    }
+
+    @Test
+    public void jsonWrapped_cache_notUsed_forGeneratorsOfOtherFactories() throws IOException {
+        mapper.writeValueAsString(new LineItem("A/B", "$"));
+        JsonFactory factory = JsonFactory.builder().enable(JsonWriteFeature.ESCAPE_FORWARD_SLASHES).build();
+        StringWriter out = new StringWriter();
+        JsonGenerator gen = factory.createGenerator(out);
+        gen.setCodec(mapper);
+
+        mapper.writeValue(gen, new LineItem("A/B", "$"));
+
+        assertEquals("{\"quantity\":1,\"currency\":{\"code\":\"A\\/B\",\"symbol\":\"$\",\"scale\":2}}", out.toString());
+        assertEquals(2, SERIALIZED.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_notUsed_forPrettyPrinter() throws IOException {
+        String result = mapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(new LineItem());
+        mapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(new LineItem());
+
+        assertEquals(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(mapper.readTree(result)), result);
+        assertEquals(2, SERIALIZED.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_notUsed_forBinaryFormats() throws IOException {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory()).registerModule(new JsonWrappedModule());
+
+        byte[] result = cbor.writeValueAsBytes(Arrays.asList(new LineItem(), new LineItem()));
+
+        assertEquals("[" + mapper.writeValueAsString(new LineItem()) + "," + mapper.writeValueAsString(new LineItem()) + "]",
+                mapper.writeValueAsString(cbor.readTree(result)));
+        assertEquals(3, SERIALIZED.get());
+    }
+
+    @Test
+    public void jsonWrapped_cache_withProjection() throws IOException {
+        String result = Projection.of("currency.code").applyTo(mapper.writer()).writeValueAsString(new LineItem());
+
+        assertEquals("{\"currency\":{\"code\":\"EUR\"}}", result);
+        assertEquals("{\"quantity\":1,\"currency\":{\"code\":\"EUR\",\"symbol\":\"\u20ac\",\"scale\":2}}", mapper.writeValueAsString(new LineItem()));
+    }
+
+    @Test
+    public void jsonWrapped_cache_read_serializedBean() throws IOException {
+        LineItem result = mapper.readValue(mapper.writeValueAsString(new LineItem("USD", "$")), LineItem.class);
+
+        assertEquals("USD", result.code);
+        assertEquals("$", result.symbol);
+        assertEquals(2, result.scale);
+    }
+
+}
@@ -0,0 +1,110 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+public class JsonWrappedIndexTest {
+
+    private static final String PROCESSOR = "de.mw.jackson.wrapped.JsonWrappedProcessor"; // classes of the processor artifact are on the test class path
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File classes;
+    private File index;
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler); // requires a JDK
+
+        File sources = folder.newFolder("sources", "generated");
+        classes = folder.newFolder("classes");
+        index = new File(classes, WrappingIndex.RESOURCE);
+        List<String> arguments = new ArrayList<String>(Arrays.asList("-nowarn", "-processor", PROCESSOR,
+                "-cp", System.getProperty("java.class.path"), "-d", classes.getPath()));
+        arguments.add(source(sources, "Wrapped", "public class Wrapped { public int age = 18; @JsonWrapped(\"name\") public String first = \"Joey\"; }"));
+        arguments.add(source(sources, "Sub", "public class Sub extends Wrapped { public String last = \"Sixpack\"; }"));
+        arguments.add(source(sources, "Plain", "public class Plain { public int age = 18; public String first = \"Joey\"; }"));
+        arguments.add(source(sources, "Name", "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME) "
+                + "@com.fasterxml.jackson.annotation.JacksonAnnotationsInside @JsonWrapped(\"name\") public @interface Name {}"));
+        arguments.add(source(sources, "Bundled", "public class Bundled { public int age = 18; @Name public String getFirst() { return \"Joey\"; } }"));
+        arguments.add(source(sources, "Outer", "public class Outer { public static class Inner { @JsonWrapped(\"name\") public String first = \"Joey\"; } }"));
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_index_lists_compiledTypes() throws IOException {
+        List<String> lines = Files.readAllLines(index.toPath(), StandardCharsets.UTF_8);
+
+        assertEquals(Arrays.asList("# generated by de.mw.jackson.wrapped.JsonWrappedProcessor", "+generated.Bundled", "-generated.Outer",
+                "+generated.Outer$Inner", "-generated.Plain", "-generated.Sub", "+generated.Wrapped"), lines);
+    }
+
+    @Test
+    public void jsonWrapped_uses_index() throws Exception {
+        ClassLoader loader = loader();
+
+        assertEquals("{\"age\":18,\"last\":\"Sixpack\",\"name\":{\"first\":\"Joey\"}}", write(loader, "generated.Sub")); // super type is combined
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", write(loader, "generated.Bundled"));
+        assertEquals("{\"name\":{\"first\":\"Joey\"}}", write(loader, "generated.Outer$Inner"));
+        assertEquals("{\"age\":18,\"first\":\"Joey\"}", write(loader, "generated.Plain"));
+    }
+
+    @Test
+    public void jsonWrapped_trusts_typesListedAsNotAnnotated() throws Exception {
+        Files.write(index.toPath(), Arrays.asList("-generated.Wrapped"), StandardCharsets.UTF_8); // not scanned by reflection
+
+        assertEquals("{\"age\":18,\"first\":\"Joey\"}", write(loader(), "generated.Wrapped"));
+    }
+
+    @Test
+    public void jsonWrapped_scans_typesNotListed() throws Exception {
+        Files.write(index.toPath(), Arrays.asList("-generated.Plain"), StandardCharsets.UTF_8);
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", write(loader(), "generated.Wrapped"));
+    }
+
+    private String write(ClassLoader loader, String className) throws Exception {
+        return mapper.writeValueAsString(loader.loadClass(className).getDeclaredConstructor().newInstance());
+    }
+
+    /**
+     * A new class loader for each test, the index is read once per class loader.
+     */
+    private ClassLoader loader() throws IOException {
+        return new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private static String source(File dir, String className, String declaration) throws IOException {
+        File source = new File(dir, className + ".java");
+        Files.write(source.toPath(), Arrays.asList("package generated;", "import de.mw.jackson.wrapped.JsonWrapped;", declaration), StandardCharsets.UTF_8);
+        return source.getPath();
+    }
+
+}
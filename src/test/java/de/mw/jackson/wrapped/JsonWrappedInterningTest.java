@@ -0,0 +1,237 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+
+
+public class JsonWrappedInterningTest {
+
+    private ObjectMapper mapper;
+
+    public static class Entity {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("meta.audit")
+        public String created = "today";
+    }
+
+    public static class Customer extends Entity {
+        public String number = "C-1";
+    }
+
+    public static class Supplier extends Entity {
+        public String number = "S-1";
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class NonNullEntity extends Entity {
+    }
+
+    public static class Person {
+        private String first = "Joey";
+        private String last = "Sixpack";
+
+        @JsonWrapped("name")
+        public String getFirst() {
+            return first;
+        }
+
+        @JsonWrapped("name")
+        public String getLast() {
+            return last;
+        }
+    }
+
+    public static class PersonProxy extends Person { // like proxies of Hibernate or ByteBuddy
+        @Override
+        public String getFirst() {
+            return "Proxied " + super.getFirst();
+        }
+
+        @Override
+        public String getLast() {
+            return super.getLast();
+        }
+    }
+
+    public static class OtherPersonProxy extends Person {
+        @Override
+        public String getFirst() {
+            return super.getFirst();
+        }
+
+        @Override
+        public String getLast() {
+            return "Other " + super.getLast();
+        }
+    }
+
+    public static class Document {
+        @JsonWrapped("meta")
+        public Date getCreated() {
+            return new Date(0);
+        }
+    }
+
+    public static class FormattedDocument extends Document {
+        @Override
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy", timezone = "UTC")
+        public Date getCreated() {
+            return super.getCreated();
+        }
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_interning_shares_virtualProperties_ofSubclasses() throws IOException {
+        assertEquals("{\"age\":18,\"number\":\"C-1\",\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"meta\":{\"audit\":{\"created\":\"today\"}}}",
+                mapper.writeValueAsString(new Customer()));
+        assertEquals("{\"age\":18,\"number\":\"S-1\",\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"meta\":{\"audit\":{\"created\":\"today\"}}}",
+                mapper.writeValueAsString(new Supplier()));
+
+        assertSame(virtualProperty(Customer.class, "name"), virtualProperty(Supplier.class, "name"));
+        assertSame(virtualProperty(Customer.class, "meta"), virtualProperty(Supplier.class, "meta"));
+        assertSame(virtualProperty(Customer.class, "name"), virtualProperty(Entity.class, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_shares_virtualProperties_ofProxies() throws IOException {
+        assertEquals("{\"name\":{\"first\":\"Proxied Joey\",\"last\":\"Sixpack\"}}", mapper.writeValueAsString(new PersonProxy()));
+        assertEquals("{\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"}}", mapper.writeValueAsString(new Person()));
+        assertEquals("{\"name\":{\"first\":\"Joey\",\"last\":\"Other Sixpack\"}}", mapper.writeValueAsString(new OtherPersonProxy()));
+        assertEquals("{\"name\":{\"first\":\"Proxied Joey\",\"last\":\"Sixpack\"}}", mapper.writeValueAsString(new PersonProxy()));
+
+        assertNotSame(virtualProperty(Person.class, "name"), virtualProperty(PersonProxy.class, "name")); // constructed before the one of the entity
+        assertSame(virtualProperty(Person.class, "name"), virtualProperty(OtherPersonProxy.class, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_separates_differentInclusion() throws IOException {
+        Entity entity = new Entity();
+        entity.last = null;
+        NonNullEntity nonNullEntity = new NonNullEntity();
+        nonNullEntity.last = null;
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":null},\"meta\":{\"audit\":{\"created\":\"today\"}}}", mapper.writeValueAsString(entity));
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"},\"meta\":{\"audit\":{\"created\":\"today\"}}}", mapper.writeValueAsString(nonNullEntity));
+
+        assertNotSame(virtualProperty(Entity.class, "name"), virtualProperty(NonNullEntity.class, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_perMapper() throws IOException {
+        ObjectMapper other = new ObjectMapper().registerModule(new JsonWrappedModule());
+        ObjectMapper copy = mapper.copy();
+
+        assertEquals(mapper.writeValueAsString(new Customer()), other.writeValueAsString(new Customer()));
+        assertEquals(mapper.writeValueAsString(new Customer()), copy.writeValueAsString(new Customer()));
+
+        assertNotSame(virtualProperty(Customer.class, "name"), virtualProperty(other, Customer.class, "name"));
+        assertNotSame(virtualProperty(Customer.class, "name"), virtualProperty(copy, Customer.class, "name"));
+        assertSame(virtualProperty(copy, Customer.class, "name"), virtualProperty(copy, Supplier.class, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_separates_overridingAnnotations() throws IOException {
+        assertEquals("{\"meta\":{\"created\":0}}", mapper.writeValueAsString(new Document()));
+        assertEquals("{\"meta\":{\"created\":\"1970\"}}", mapper.writeValueAsString(new FormattedDocument()));
+
+        assertNotSame(virtualProperty(Document.class, "meta"), virtualProperty(FormattedDocument.class, "meta"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_perMapper_withSharedSubtypeResolver() throws IOException {
+        ObjectMapper other = mapper.copy(); // shares the module
+        other.setSubtypeResolver(mapper.getSubtypeResolver());
+
+        assertEquals(mapper.writeValueAsString(new Customer()), other.writeValueAsString(new Supplier()).replace("S-1", "C-1"));
+
+        assertNotSame(virtualProperty(Customer.class, "name"), virtualProperty(other, Supplier.class, "name"));
+    }
+
+    @Test
+    public void jsonWrapped_interning_notUsed_withListener() throws IOException {
+        ObjectMapper instrumented = instrumentedMapper();
+
+        assertNotSame(virtualProperty(instrumented, Customer.class, "name"), virtualProperty(instrumented, Supplier.class, "name")); // reports the bean type
+    }
+
+    @Test
+    public void jsonWrapped_interning_retains_oneWriterPerVirtualProperty() throws IOException {
+        Class<?>[] types = { Entity.class, Customer.class, Supplier.class };
+
+        assertEquals(3, retainedVirtualProperties(mapper, types)); // name, meta, meta.audit
+        assertEquals(9, retainedVirtualProperties(instrumentedMapper(), types)); // not interned
+    }
+
+    private static ObjectMapper instrumentedMapper() {
+        return new ObjectMapper().registerModule(new JsonWrappedModule().setListener(new JsonWrappedListener() {
+            @Override
+            public void virtualPropertySerialized(Class<?> beanType, String virtualProperty, long nanos, long bytes) {
+            }
+        }));
+    }
+
+    /**
+     * @return number of distinct virtual properties (including nested ones) retained by the serializers of the types
+     */
+    private static int retainedVirtualProperties(ObjectMapper mapper, Class<?>... types) throws JsonMappingException {
+        Set<PropertyWriter> retained = Collections.newSetFromMap(new IdentityHashMap<PropertyWriter, Boolean>());
+        for (Class<?> type : types) {
+            collectVirtualProperties(((BeanSerializerBase) mapper.getSerializerProviderInstance().findValueSerializer(type)).properties(), retained);
+        }
+        return retained.size();
+    }
+
+    private static void collectVirtualProperties(Iterator<PropertyWriter> props, Set<PropertyWriter> retained) {
+        while (props.hasNext()) {
+            PropertyWriter prop = props.next();
+            if (prop instanceof WrappingPropertyWriter && retained.add(prop)) {
+                collectVirtualProperties(((WrappingPropertyWriter) prop).getWrappedPropertiesSerializer().properties(), retained);
+            }
+        }
+    }
+
+    private PropertyWriter virtualProperty(Class<?> beanType, String name) throws JsonMappingException {
+        return virtualProperty(mapper, beanType, name);
+    }
+
+    private static PropertyWriter virtualProperty(ObjectMapper mapper, Class<?> beanType, String name) throws JsonMappingException {
+        BeanSerializerBase serializer = (BeanSerializerBase) mapper.getSerializerProviderInstance().findValueSerializer(beanType);
+        for (Iterator<PropertyWriter> it = serializer.properties(); it.hasNext(); ) {
+            PropertyWriter prop = it.next();
+            if (prop.getName().equals(name)) {
+                return prop;
+            }
+        }
+        throw new AssertionError("no property " + name + " of " + beanType);
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+
+public class JsonWrappedJfrTest {
+
+    private static final String CONSTRUCTION = "de.mw.jackson.wrapped.SerializerConstruction";
+    private static final String SERIALIZATION = "de.mw.jackson.wrapped.VirtualPropertySerialization";
+
+    private Recording recording;
+    private File file;
+
+    public static class Flat {
+        public int x = 42;
+    }
+
+    public static class Bean {
+        public int x = 42;
+        @JsonWrapped("meta")
+        public int version = 3;
+    }
+
+    @Before
+    public void setup() throws IOException {
+        assumeTrue(JfrSupport.isAvailable());
+        recording = new Recording();
+        recording.enable(CONSTRUCTION);
+        recording.enable(SERIALIZATION);
+        recording.start();
+        file = File.createTempFile("jsonwrapped", ".jfr");
+    }
+
+    @After
+    public void tearDown() {
+        if (recording != null) {
+            recording.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void jsonWrapped_records_serializerConstruction() throws IOException {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        mapper.writeValueAsString(new Flat());
+        mapper.writeValueAsString(new Bean());
+
+        List<RecordedEvent> events = stop(CONSTRUCTION);
+
+        assertEquals(2, events.size());
+        assertEquals(Flat.class.getName(), events.get(0).<RecordedClass>getValue("beanType").getName());
+        assertEquals(false, events.get(0).getBoolean("wrapped"));
+        assertEquals(Bean.class.getName(), events.get(1).<RecordedClass>getValue("beanType").getName());
+        assertEquals(true, events.get(1).getBoolean("wrapped"));
+        assertTrue(events.get(1).getLong("planTime") >= 0);
+        assertTrue(events.get(1).getLong("wrapTime") >= 0);
+    }
+
+    @Test
+    public void jsonWrapped_samples_serializationOfVirtualProperties() throws IOException {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        int calls = 100 * JfrSupport.SAMPLE_RATE;
+        for (int i = 0; i < calls; i++) {
+            mapper.writeValueAsBytes(new Bean()); // reports the written bytes
+        }
+
+        List<RecordedEvent> events = stop(SERIALIZATION);
+
+        assertTrue(events.size() > 0);
+        assertTrue(events.size() < calls / 10);
+        for (RecordedEvent event : events) {
+            assertEquals(Bean.class.getName(), event.<RecordedClass>getValue("beanType").getName());
+            assertEquals("meta", event.getString("virtualProperty"));
+            assertEquals(",\"meta\":{\"version\":3}".length(), event.getLong("bytes"));
+        }
+    }
+
+    @Test
+    public void jsonWrapped_skipsMeasurement_afterRecording() {
+        JsonWrappedListener sampler = JfrSupport.withSerializationEvents(null);
+
+        assertTrue(((JfrSupport.SamplingListener) sampler).isRecording());
+        recording.stop();
+        assertEquals(false, ((JfrSupport.SamplingListener) sampler).isRecording());
+    }
+
+    private List<RecordedEvent> stop(String eventName) throws IOException {
+        recording.stop();
+        recording.dump(file.toPath());
+        List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getEventType().getName().equals(eventName)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+}
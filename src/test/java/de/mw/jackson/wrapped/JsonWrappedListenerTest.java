@@ -0,0 +1,140 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+
+
+public class JsonWrappedListenerTest {
+
+    private List<String> reports;
+    private List<Long> bytes;
+    private ObjectMapper mapper;
+
+    public static class Bean {
+        public int x = 42;
+        @JsonWrapped("meta")
+        public int version = 3;
+        @JsonWrapped("meta.audit")
+        public String created = "today";
+    }
+
+    @Before
+    public void setup() {
+        reports = new ArrayList<String>();
+        bytes = new ArrayList<Long>();
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule().setListener(new JsonWrappedListener() {
+            @Override
+            public void virtualPropertySerialized(Class<?> beanType, String virtualProperty, long nanos, long written) {
+                assertTrue(nanos >= 0);
+                reports.add(beanType.getSimpleName() + "." + virtualProperty);
+                bytes.add(written);
+            }
+        }));
+    }
+
+    public static class OptionalBean {
+        public int x = 42;
+        @JsonWrapped(value = "meta", omitIfEmpty = true)
+        @JsonInclude(Include.NON_NULL)
+        public String created;
+    }
+
+    public static class LargeBean {
+        @JsonWrapped("data")
+        public String text;
+
+        LargeBean(int length) {
+            char[] chars = new char[length];
+            Arrays.fill(chars, 'x');
+            text = new String(chars);
+        }
+    }
+
+    @Test
+    public void jsonWrapped_reports_virtualProperties() throws Exception {
+        String result = new String(mapper.writeValueAsBytes(new Bean()), "UTF-8");
+
+        assertEquals("{\"x\":42,\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\"}}}", result);
+        assertEquals(2, reports.size());
+        assertEquals("Bean.meta.audit", reports.get(0)); // nested virtual property is completed first
+        assertEquals("Bean.meta", reports.get(1));
+        assertEquals(",\"audit\":{\"created\":\"today\"}".length(), bytes.get(0).longValue());
+        assertEquals(",\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\"}}".length(), bytes.get(1).longValue());
+    }
+
+    @Test
+    public void jsonWrapped_reports_only_writtenVirtualProperties() throws Exception {
+        OptionalBean bean = new OptionalBean();
+        String omitted = mapper.writeValueAsString(bean);
+        bean.created = "today";
+        String written = mapper.writeValueAsString(bean);
+
+        assertEquals("{\"x\":42}", omitted);
+        assertEquals("{\"x\":42,\"meta\":{\"created\":\"today\"}}", written);
+        assertEquals(Arrays.asList("OptionalBean.meta"), reports);
+    }
+
+    @Test
+    public void jsonWrapped_reports_unknownBytes() throws Exception {
+        mapper.valueToTree(new Bean());
+
+        assertEquals(2, reports.size());
+        assertEquals(-1L, bytes.get(0).longValue());
+        assertEquals(-1L, bytes.get(1).longValue());
+    }
+
+    @Test
+    public void jsonWrapped_reports_unknownBytes_whenFlushed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeValue(out, new LargeBean(100));
+        mapper.writeValue(out, new LargeBean(100000)); // exceeds the buffer of the generator
+
+        assertEquals(2, reports.size());
+        assertEquals("\"data\":{\"text\":\"\"}".length() + 100, bytes.get(0).longValue());
+        assertEquals(-1L, bytes.get(1).longValue());
+    }
+
+    @Test
+    public void jsonWrapped_reports_unknownBytes_forUncountedTarget() throws Exception {
+        mapper.writeValueAsString(new Bean()); // SegmentedStringWriter does not tell its size
+
+        assertEquals(2, reports.size());
+        assertEquals(-1L, bytes.get(0).longValue());
+        assertEquals(-1L, bytes.get(1).longValue());
+    }
+
+    @Test
+    public void jsonWrapped_isNotInstrumented_withoutListener() throws Exception {
+        ObjectMapper plainMapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        JsonSerializer<Object> serializer = plainMapper.getSerializerProviderInstance().findValueSerializer(Bean.class);
+
+        int virtualProperties = 0;
+        for (Iterator<PropertyWriter> it = serializer.properties(); it.hasNext();) {
+            PropertyWriter prop = it.next();
+            if (prop instanceof WrappingPropertyWriter) {
+                assertSame(WrappingPropertyWriter.class, prop.getClass());
+                virtualProperties++;
+            }
+        }
+
+        assertEquals(1, virtualProperties);
+    }
+
+}
@@ -0,0 +1,134 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Wrapped properties keep the optimized accessors of Blackbird and Afterburner, regardless of the registration order.
+ */
+@RunWith(Parameterized.class)
+public class JsonWrappedOptimizerCompatibilityTest {
+
+    private final Module optimizer;
+    private final boolean registerFirst;
+
+    /**
+     * Blackbird optimizes getters only
+     */
+    public static class Bean {
+        private int age = 18;
+        private String first = "Joey";
+        private String last = "Sixpack";
+        private String street = "Sunset boulevard";
+        private long zip = 12345;
+
+        public int getAge() {
+            return age;
+        }
+
+        @JsonWrapped("name")
+        public String getFirst() {
+            return first;
+        }
+
+        @JsonWrapped("name")
+        public String getLast() {
+            return last;
+        }
+
+        @JsonWrapped("address")
+        public String getStreet() {
+            return street;
+        }
+
+        @JsonWrapped("address")
+        public long getZip() {
+            return zip;
+        }
+    }
+
+    public JsonWrappedOptimizerCompatibilityTest(String name, Module optimizer, boolean registerFirst) {
+        this.optimizer = optimizer;
+        this.registerFirst = registerFirst;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> optimizers() {
+        return Arrays.asList(new Object[][] {
+            { "blackbird, registered first", new BlackbirdModule(), true },
+            { "blackbird, registered last", new BlackbirdModule(), false },
+            { "afterburner, registered first", new AfterburnerModule(), true },
+            { "afterburner, registered last", new AfterburnerModule(), false },
+        });
+    }
+
+    private ObjectMapper mapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        if (registerFirst) {
+            mapper.registerModule(optimizer);
+        }
+        mapper.registerModule(new JsonWrappedModule());
+        if (!registerFirst) {
+            mapper.registerModule(optimizer);
+        }
+        return mapper;
+    }
+
+    @Test
+    public void jsonWrapped_wraps_optimizedProperties() throws Exception {
+        String result = mapper().writeValueAsString(new Bean());
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"zip\":12345}}", result);
+    }
+
+    @Test
+    public void jsonWrapped_keeps_optimizedAccessors() throws Exception {
+        ObjectMapper mapper = mapper();
+        JsonSerializer<Object> serializer = mapper.getSerializerProviderInstance().findValueSerializer(Bean.class);
+
+        List<BeanPropertyWriter> wrapped = new ArrayList<BeanPropertyWriter>();
+        for (Iterator<PropertyWriter> it = serializer.properties(); it.hasNext();) {
+            PropertyWriter prop = it.next();
+            if (prop instanceof WrappingPropertyWriter) {
+                for (Iterator<PropertyWriter> wrappedIt = ((WrappingPropertyWriter) prop).getWrappedPropertiesSerializer().properties(); wrappedIt.hasNext();) {
+                    wrapped.add((BeanPropertyWriter) wrappedIt.next());
+                }
+            } else {
+                assertOptimized(prop);
+            }
+        }
+
+        assertTrue(serializer instanceof BeanSerializerBase);
+        assertEquals(4, wrapped.size());
+        for (BeanPropertyWriter prop : wrapped) {
+            assertOptimized(prop);
+        }
+    }
+
+    private void assertOptimized(PropertyWriter prop) {
+        String optimizerPackage = optimizer.getClass().getPackage().getName();
+        assertTrue(prop.getName() + " is not optimized: " + prop.getClass().getName(), prop.getClass().getName().startsWith(optimizerPackage));
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+
+public class JsonWrappedPrewarmTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ObjectMapper mapper;
+    private AtomicInteger constructions;
+
+    public static class Bean {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+    }
+
+    public static class Other {
+        @JsonWrapped("meta.audit")
+        public String created = "today";
+    }
+
+    public static class Broken {
+        @JsonProperty("a")
+        public int x;
+        @JsonProperty("a")
+        public int y;
+    }
+
+    @Before
+    public void setup() {
+        constructions = new AtomicInteger();
+        SimpleModule counting = new SimpleModule("counting");
+        counting.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == Bean.class) {
+                    constructions.incrementAndGet();
+                }
+                return serializer;
+            }
+        });
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule()).registerModule(counting);
+    }
+
+    @Test
+    public void jsonWrapped_prewarm_constructs_serializers() throws Exception {
+        long nanos = JsonWrappedModule.prewarm(mapper, Arrays.<Class<?>>asList(Bean.class, Other.class));
+
+        assertTrue(nanos > 0);
+        assertEquals(1, constructions.get());
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"}}", mapper.writeValueAsString(new Bean()));
+        assertEquals(1, constructions.get()); // cached
+        assertEquals("{\"meta\":{\"audit\":{\"created\":\"today\"}}}", mapper.writeValueAsString(new Other()));
+    }
+
+    @Test
+    public void jsonWrapped_prewarm_by_pool() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            JsonWrappedModule.prewarm(mapper, Collections.<Class<?>>singletonList(Bean.class), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        mapper.writeValueAsString(new Bean());
+        assertEquals(1, constructions.get());
+    }
+
+    @Test
+    public void jsonWrapped_prewarm_fails_afterAllTypes() throws Exception {
+        try {
+            JsonWrappedModule.prewarm(mapper, Arrays.<Class<?>>asList(Broken.class, Bean.class));
+            fail("expected JsonMappingException");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("\"a\""));
+        }
+
+        mapper.writeValueAsString(new Bean());
+        assertEquals(1, constructions.get());
+    }
+
+    @Test
+    public void jsonWrapped_prewarm_typesOfIndex() throws Exception {
+        File classes = folder.newFolder("classes");
+        File index = new File(classes, WrappingIndex.RESOURCE);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), Arrays.asList("+" + Bean.class.getName(), "-" + Broken.class.getName(), "+does.not.Exist"), StandardCharsets.UTF_8);
+
+        JsonWrappedModule.prewarm(mapper, new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader()));
+
+        assertEquals(1, constructions.get());
+    }
+
+}
@@ -0,0 +1,189 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+
+public class JsonWrappedProjectionTest {
+
+    private static interface PublicView {}
+    private static interface InternalView {}
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("address")
+        public String street = "Sunset boulevard";
+        @JsonWrapped("address")
+        public String city = "Heaven";
+        @JsonWrapped("meta.audit")
+        public String created = "today";
+        @JsonWrapped("meta")
+        public int version = 3;
+    }
+
+    public static class Team {
+        public Person lead = new Person();
+        @JsonWrapped("info")
+        public String title = "A-Team";
+    }
+
+    public static class ViewPerson {
+        public int age = 18;
+        @JsonWrapped("name")
+        @JsonView(PublicView.class)
+        public String first = "Joey";
+        @JsonWrapped("name")
+        @JsonView(InternalView.class)
+        public String last = "Sixpack";
+    }
+
+    public static class PlainPerson {
+        public int age = 18;
+        public String first = "Joey";
+        public Person wrapped = new Person();
+    }
+
+    public static class AnyPerson {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+
+        @JsonAnyGetter
+        public Map<String, Object> getAny() {
+            return Collections.<String, Object>singletonMap("extra", "value");
+        }
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_projection_selects_wrappedPaths() throws IOException {
+        String result = Projection.of("age,name.first,address").applyTo(mapper.writer()).writeValueAsString(new Person());
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\"}}", result);
+    }
+
+    @Test
+    public void jsonWrapped_projection_selects_nestedVirtualProperties() throws IOException {
+        ObjectWriter writer = Projection.of("meta.audit.created").applyTo(mapper.writer());
+
+        assertEquals("{\"meta\":{\"audit\":{\"created\":\"today\"}}}", writer.writeValueAsString(new Person()));
+        assertEquals("{\"meta\":{\"version\":3}}", Projection.of("meta.version").applyTo(mapper.writer()).writeValueAsString(new Person()));
+    }
+
+    @Test
+    public void jsonWrapped_projection_omits_virtualPropertiesWithoutSelectedProperties() throws IOException {
+        String result = Projection.of("age,name.unknown,unknown").applyTo(mapper.writer()).writeValueAsString(new Person());
+
+        assertEquals("{\"age\":18}", result);
+    }
+
+    @Test
+    public void jsonWrapped_projection_applies_toElementsOfRootArray() throws IOException {
+        String result = Projection.of("name.last").applyTo(mapper.writer()).writeValueAsString(Arrays.asList(new Person(), new Person()));
+
+        assertEquals("[{\"name\":{\"last\":\"Sixpack\"}},{\"name\":{\"last\":\"Sixpack\"}}]", result);
+    }
+
+    @Test
+    public void jsonWrapped_projection_writes_nestedBeansCompletely() throws IOException {
+        String result = Projection.of("lead.age").applyTo(mapper.writer()).writeValueAsString(new Team());
+
+        assertEquals("{\"lead\":" + mapper.writeValueAsString(new Person()) + "}", result); // path below a real property
+    }
+
+    @Test
+    public void jsonWrapped_projection_respects_views() throws IOException {
+        ObjectWriter writer = Projection.of("age,name.last").applyTo(mapper.writerWithView(PublicView.class));
+
+        assertEquals("{\"age\":18}", writer.writeValueAsString(new ViewPerson()));
+        assertEquals("{\"age\":18,\"name\":{\"last\":\"Sixpack\"}}", writer.withView(InternalView.class).writeValueAsString(new ViewPerson()));
+    }
+
+    @Test
+    public void jsonWrapped_projection_keeps_anyGetter() throws IOException {
+        String result = Projection.of("name").applyTo(mapper.writer()).writeValueAsString(new AnyPerson());
+
+        assertEquals("{\"extra\":\"value\",\"name\":{\"first\":\"Joey\"}}", result);
+    }
+
+    @Test
+    public void jsonWrapped_projection_doesNotAffect_otherWriters() throws IOException {
+        Projection.of("age").applyTo(mapper.writer()).writeValueAsString(new Person());
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\"},"
+                + "\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\"}}}", mapper.writeValueAsString(new Person()));
+    }
+
+    @Test
+    public void jsonWrapped_projection_parsed_once() {
+        assertSame(Projection.of("age, name.first"), Projection.of("age, name.first"));
+        assertEquals(Projection.of("name.first,age"), Projection.of(" age ,name.first,"));
+        assertEquals(Projection.of("name"), Projection.of("name.first,name"));
+        assertNotEquals(Projection.of("name"), Projection.of("name.first"));
+        assertEquals("age,meta.audit,name.first", Projection.of("name.first,meta.audit.created,age,meta.audit").toString());
+        assertEquals("*", Projection.of("name").select("name").toString());
+        assertEquals("", Projection.of("").toString());
+    }
+
+    @Test
+    public void jsonWrapped_projection_selects_propertiesOfPlainBeans() throws IOException {
+        ObjectWriter writer = Projection.of("first,wrapped").applyTo(mapper.writer());
+
+        assertEquals("{\"first\":\"Joey\",\"wrapped\":" + mapper.writeValueAsString(new Person()) + "}", writer.writeValueAsString(new PlainPerson()));
+        assertEquals("[{\"first\":\"Joey\"}]", Projection.of("first").applyTo(mapper.writer()).writeValueAsString(Arrays.asList(new PlainPerson())));
+        assertEquals("{\"age\":18,\"first\":\"Joey\",\"wrapped\":" + mapper.writeValueAsString(new Person()) + "}",
+                mapper.writeValueAsString(new PlainPerson()));
+    }
+
+    @Test
+    public void jsonWrapped_projection_ignored_forMaps() throws IOException {
+        Map<String, Object> map = Collections.<String, Object>singletonMap("age", 18);
+
+        assertEquals("{\"age\":18}", Projection.of("name").applyTo(mapper.writer()).writeValueAsString(map));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jsonWrapped_projection_rejects_emptyNames() {
+        Projection.of("age,name..first");
+    }
+
+    @Test
+    public void jsonWrapped_projection_writes_readableBean() throws IOException {
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("age", 18);
+        expected.put("name", Collections.singletonMap("first", "Joey"));
+
+        String result = Projection.of("age,name.first").applyTo(mapper.writer()).writeValueAsString(new Person());
+        Person read = mapper.readValue(result, Person.class);
+
+        assertEquals(expected, mapper.readValue(result, Map.class));
+        assertEquals("Joey", read.first);
+    }
+
+}
@@ -0,0 +1,160 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+public class JsonWrappedRulesTest {
+
+    private static interface PublicView {}
+    private static interface InternalView {}
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age = 18;
+        public String first = "Joey";
+        public String last = "Sixpack";
+        public String street = "Sunset boulevard";
+        public String city = "Heaven";
+    }
+
+    public static class Employee extends Person {
+        public String company = "ACME";
+    }
+
+    public static class Team {
+        public List<Person> members = new ArrayList<Person>();
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class Audited {
+        public int version = 3;
+        public String created = "today";
+        public String modified = null;
+    }
+
+    public static class ViewPerson {
+        public int age = 18;
+        public String first = "Joey";
+        @JsonView(InternalView.class)
+        public String last = "Sixpack";
+    }
+
+    @JsonWrapped(value = "name", properties = {"first", "last"})
+    public static class Annotated {
+        public int age = 18;
+        @JsonWrapped("fullName")
+        public String first = "Joey";
+        public String last = "Sixpack";
+        public String city = "Heaven";
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule()
+                .wrap(Person.class, "name", "first", "last")
+                .wrap(Person.class, "address", "street", "city")
+                .wrap(Employee.class, "employment", "company", "city")
+                .wrap(Audited.class, "meta.audit", null, true, "created", "modified")
+                .wrap(Audited.class, "meta", "version")
+                .wrap(ViewPerson.class, "name", new Class<?>[] { InternalView.class }, false, "first")
+                .wrap(Annotated.class, "address", "last", "city"));
+    }
+
+    @Test
+    public void jsonWrapped_rules_wrap_properties() throws IOException {
+        String result = mapper.writeValueAsString(new Person());
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\"}}", result);
+    }
+
+    @Test
+    public void jsonWrapped_rules_apply_toSubtypes() throws IOException {
+        String result = mapper.writeValueAsString(new Employee());
+
+        assertEquals("{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\"},"
+                + "\"employment\":{\"city\":\"Heaven\",\"company\":\"ACME\"}}", result); // rule of subtype has precedence
+    }
+
+    @Test
+    public void jsonWrapped_rules_apply_toElementsOfCollections() throws IOException {
+        Team team = new Team();
+        team.members.add(new Person());
+        team.members.add(new Employee());
+
+        String result = mapper.writeValueAsString(team);
+
+        assertEquals("{\"members\":[{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\",\"city\":\"Heaven\"}},"
+                + "{\"age\":18,\"name\":{\"first\":\"Joey\",\"last\":\"Sixpack\"},\"address\":{\"street\":\"Sunset boulevard\"},"
+                + "\"employment\":{\"city\":\"Heaven\",\"company\":\"ACME\"}}]}", result);
+    }
+
+    @Test
+    public void jsonWrapped_rules_wrap_propertiesInPath() throws IOException {
+        Audited audited = new Audited();
+
+        assertEquals("{\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\"}}}", mapper.writeValueAsString(audited));
+
+        audited.created = null;
+        assertEquals("{\"meta\":{\"version\":3}}", mapper.writeValueAsString(audited)); // omitted if empty
+    }
+
+    @Test
+    public void jsonWrapped_rules_respect_views() throws IOException {
+        assertEquals("{\"age\":18}", mapper.writerWithView(PublicView.class).writeValueAsString(new ViewPerson()));
+        assertEquals("{\"age\":18,\"last\":\"Sixpack\",\"name\":{\"first\":\"Joey\"}}", mapper.writerWithView(InternalView.class).writeValueAsString(new ViewPerson()));
+    }
+
+    @Test
+    public void jsonWrapped_rules_precedence() throws IOException {
+        String result = mapper.writeValueAsString(new Annotated());
+
+        // property level annotation > rule > type level annotation
+        assertEquals("{\"age\":18,\"fullName\":{\"first\":\"Joey\"},\"address\":{\"last\":\"Sixpack\",\"city\":\"Heaven\"}}", result);
+    }
+
+    @Test
+    public void jsonWrapped_rules_read_serializedBean() throws IOException {
+        Employee result = mapper.readValue("{\"age\":42,\"name\":{\"first\":\"Jane\",\"last\":\"Doe\"},\"address\":{\"street\":\"Main street\"},"
+                + "\"employment\":{\"city\":\"Springfield\",\"company\":\"Initech\"}}", Employee.class);
+
+        assertEquals(42, result.age);
+        assertEquals("Jane", result.first);
+        assertEquals("Doe", result.last);
+        assertEquals("Main street", result.street);
+        assertEquals("Springfield", result.city);
+        assertEquals("Initech", result.company);
+    }
+
+    @Test
+    public void jsonWrapped_rules_doNotAffect_otherMappers() throws IOException {
+        ObjectMapper plainMapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+
+        assertEquals("{\"age\":18,\"first\":\"Joey\",\"last\":\"Sixpack\",\"street\":\"Sunset boulevard\",\"city\":\"Heaven\"}",
+                plainMapper.writeValueAsString(new Person()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jsonWrapped_rules_require_properties() {
+        new JsonWrappedModule().wrap(Person.class, "name");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jsonWrapped_rules_require_virtualProperty() {
+        new JsonWrappedModule().wrap(Person.class, " . ", "first");
+    }
+
+}
@@ -0,0 +1,127 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrapper;
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonObjectFormatVisitor;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+import com.fasterxml.jackson.module.jsonSchema.JsonSchemaGenerator;
+
+
+public class JsonWrappedSchemaTest {
+
+    private static interface PublicView {}
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first;
+        @JsonWrapped("name")
+        public String last;
+        @JsonWrapped("person.address")
+        @JsonView(PublicView.class)
+        public String street;
+        @JsonWrapped("person.address")
+        public List<Integer> zips;
+        @JsonWrapped("person")
+        public boolean active;
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_schema_describes_virtualProperties() throws Exception {
+        JsonNode schema = schema(new JsonSchemaGenerator(mapper).generateSchema(Person.class));
+
+        JsonNode props = schema.get("properties");
+        assertEquals("integer", props.get("age").get("type").asText());
+        assertEquals("object", props.get("name").get("type").asText());
+        assertEquals("string", props.get("name").get("properties").get("first").get("type").asText());
+        assertEquals("string", props.get("name").get("properties").get("last").get("type").asText());
+        assertFalse(props.get("name").has("$ref"));
+        assertNull(props.get("name").get("id"));
+
+        JsonNode person = props.get("person");
+        assertEquals("object", person.get("type").asText());
+        assertEquals("boolean", person.get("properties").get("active").get("type").asText());
+        JsonNode address = person.get("properties").get("address");
+        assertEquals("object", address.get("type").asText());
+        assertEquals("string", address.get("properties").get("street").get("type").asText());
+        assertEquals("array", address.get("properties").get("zips").get("type").asText());
+    }
+
+    @Test
+    public void jsonWrapped_schema_respects_view() throws Exception {
+        mapper = JsonMapper.builder().disable(MapperFeature.DEFAULT_VIEW_INCLUSION).addModule(new JsonWrappedModule()).build();
+        final List<String> properties = new ArrayList<String>();
+
+        mapper.writerWithView(PublicView.class).acceptJsonFormatVisitor(Person.class, new PropertyCollector(null, "", properties));
+
+        assertEquals("[person, person.address, person.address.street]", properties.toString());
+    }
+
+    private JsonNode schema(JsonSchema schema) {
+        return mapper.valueToTree(schema);
+    }
+
+    /**
+     * Collects the (dotted) names of all visited properties.
+     */
+    private static class PropertyCollector extends JsonFormatVisitorWrapper.Base {
+
+        private final String prefix;
+        private final List<String> properties;
+
+        PropertyCollector(SerializerProvider provider, String prefix, List<String> properties) {
+            super(provider);
+            this.prefix = prefix;
+            this.properties = properties;
+        }
+
+        @Override
+        public JsonObjectFormatVisitor expectObjectFormat(JavaType type) {
+            return new JsonObjectFormatVisitor.Base(getProvider()) {
+                @Override
+                public void property(BeanProperty prop) throws JsonMappingException {
+                    optionalProperty(prop);
+                }
+
+                @Override
+                public void optionalProperty(BeanProperty prop) throws JsonMappingException {
+                    String name = prefix + prop.getName();
+                    properties.add(name);
+                    JsonSerializer<Object> serializer = ((BeanPropertyWriter) prop).getSerializer();
+                    if (serializer instanceof VirtualObjectSerializer) {
+                        serializer.acceptJsonFormatVisitor(new PropertyCollector(getProvider(), name + ".", properties), prop.getType());
+                    }
+                }
+            };
+        }
+    }
+
+}
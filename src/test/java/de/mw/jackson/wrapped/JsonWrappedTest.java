@@ -3,20 +3,30 @@ package de.mw.jackson.wrapped;
 
 import static org.junit.Assert.assertEquals;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 
@@ -30,6 +40,19 @@ public class JsonWrappedTest {
     private static interface View extends DefaultView {}
     private static interface View2 extends DefaultView {}
     
+    @Retention(RetentionPolicy.RUNTIME)
+    @JacksonAnnotationsInside
+    @JsonWrapped("bundled")
+    private static @interface WrappedBundle {}
+    
+    private static class PlainClass {
+        public int x = 42;
+        public int y = 4711;
+    }
+    
+    @JsonWrapped(value = "wrapped", properties = "y")
+    private static abstract class PlainClassMixIn {}
+    
     @Before
     public void setup() {
         mapper = new ObjectMapper();
@@ -390,6 +413,127 @@ public class JsonWrappedTest {
         assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
     }
     
+    @Test
+    public void jsonWrapped_virtualProperty_isNotOmmitedWithoutActiveView() throws JsonProcessingException {
+        @JsonView(DefaultView.class)
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonView(View.class)
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+            
+            @JsonWrapped(value = "foo", views = View2.class)
+            public int z = 10;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711},\"foo\":{\"z\":10}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesWithoutViews_withActiveView() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        
+        String result = mapper.writerWithView(View.class)
+                              .writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesWithAndWithoutViews() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+            
+            @JsonView(View.class)
+            @JsonWrapped("wrapped")
+            public int z = 10;
+            
+            @JsonView(View.class)
+            @JsonWrapped("foo")
+            public int a = 1;
+        }
+        
+        {
+            String result = mapper.writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711,\"z\":10},\"foo\":{\"a\":1}}", result);
+        }
+        {
+            String result = mapper.writerWithView(View.class)
+                                  .writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711,\"z\":10},\"foo\":{\"a\":1}}", result);
+        }
+        {
+            String result = mapper.writerWithView(View2.class)
+                                  .writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+        }
+    }
+    
+    @Test
+    public void jsonWrapped_virtualProperty_views_withoutViewsOfProperties() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonWrapped(value = "wrapped", views = View.class)
+            public int y = 4711;
+        }
+        
+        {
+            String result = mapper.writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+        }
+        {
+            String result = mapper.writerWithView(View.class)
+                                  .writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+        }
+        {
+            String result = mapper.writerWithView(View2.class)
+                                  .writeValueAsString(new FieldClass());
+            
+            assertEquals("{\"x\":42}", result);
+        }
+    }
+    
+    @Test
+    public void jsonWrapped_views_areConsideredAlternately() throws JsonProcessingException {
+        @JsonView(DefaultView.class)
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonView(View.class)
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+            
+            @JsonView(View2.class)
+            @JsonWrapped("wrapped")
+            public int z = 10;
+        }
+        
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", mapper.writerWithView(View.class).writeValueAsString(new FieldClass()));
+            assertEquals("{\"x\":42,\"wrapped\":{\"z\":10}}", mapper.writerWithView(View2.class).writeValueAsString(new FieldClass()));
+            assertEquals("{\"x\":42}", mapper.writerWithView(DefaultView.class).writeValueAsString(new FieldClass()));
+            assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711,\"z\":10}}", mapper.writeValueAsString(new FieldClass()));
+        }
+    }
+    
     @Test
     public void jsonWrapped_virtualProperty_isConsideredByFilter() throws JsonProcessingException {
         @JsonFilter("filter")
@@ -511,6 +655,24 @@ public class JsonWrappedTest {
         assertEquals("{\"type\":\"foo\",\"x\":42,\"wrapped\":{\"y\":4711}}", result);
     }
     
+    @Test
+    public void jsonWrapped_ignores_typeOnVirtualProperty_withActiveView() throws JsonProcessingException {
+        @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+        @JsonTypeName("foo")
+        @JsonView(DefaultView.class)
+        class FieldClass {
+            public int x = 42;
+            @JsonView(View.class)
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        
+        String result = mapper.writerWithView(View.class)
+                              .writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"type\":\"foo\",\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+    }
+    
     
     
     //
@@ -992,4 +1154,389 @@ public class JsonWrappedTest {
         
         assertEquals("{\"nested\":{\"x\":42,\"wrapped\":{\"y\":4711}}}", result);
     }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfMixIn() throws JsonProcessingException {
+        String plain = mapper.writeValueAsString(new PlainClass());
+        
+        ObjectMapper mixInMapper = new ObjectMapper().registerModule(new JsonWrappedModule())
+                                                     .addMixIn(PlainClass.class, PlainClassMixIn.class);
+        String result = mixInMapper.writeValueAsString(new PlainClass());
+        
+        assertEquals("{\"x\":42,\"y\":4711}", plain);
+        assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfAnnotationBundle() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @WrappedBundle
+            public int y = 4711;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"bundled\":{\"y\":4711}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_inheritedProperties() throws JsonProcessingException {
+        class SuperClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        class SubClass extends SuperClass {
+            public int z = 13;
+        }
+        
+        String result = mapper.writeValueAsString(new SubClass());
+        
+        assertEquals("{\"x\":42,\"z\":13,\"wrapped\":{\"y\":4711}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_writes_emptyVirtualProperty() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            @JsonInclude(Include.NON_NULL)
+            public String y = null;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"wrapped\":{}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertyWithNulls() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_NULL)
+            public String y = null;
+            @JsonWrapped("wrapped")
+            @JsonInclude(Include.NON_NULL)
+            public String z = null;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_writes_virtualPropertyWithValues() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_NULL)
+            public String y = null;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_NULL)
+            public String z = "z";
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"wrapped\":{\"z\":\"z\"}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_writes_virtualPropertyWithNullValues() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            public String y = null;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"wrapped\":{\"y\":null}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertyWithEmptyValues() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_EMPTY)
+            public String y = "";
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_EMPTY)
+            public List<String> z = new ArrayList<String>();
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_atTypeLevel_omits_virtualProperty() throws JsonProcessingException {
+        @JsonWrapped(value = "wrapped", properties = {"y", "z"}, omitIfEmpty = true)
+        @JsonInclude(Include.NON_NULL)
+        class FieldClass {
+            public int x = 42;
+            public String y = null;
+            public String z = null;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertyWithoutPropertiesInActiveView() throws JsonProcessingException {
+        class FieldClass {
+            @JsonView(View.class)
+            public int x = 42;
+            @JsonView(View2.class)
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            public int y = 4711;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            @JsonInclude(Include.NON_NULL)
+            public String z = null;
+        }
+        
+        String view = mapper.writerWithView(View.class).writeValueAsString(new FieldClass());
+        String view2 = mapper.writerWithView(View2.class).writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", view);
+        assertEquals("{\"wrapped\":{\"y\":4711}}", view2);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertyWithFilteredProperties() throws JsonProcessingException {
+        @JsonFilter("filter")
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            public int y = 4711;
+        }
+        
+        String result = mapper.setFilterProvider(new SimpleFilterProvider().addFilter("filter", SimpleBeanPropertyFilter.serializeAllExcept("y")))
+                              .writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertyOfEmptyAnyGetter() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonAnyGetter
+            @JsonWrapped(value = "wrapped", omitIfEmpty = true)
+            public Map<String, Object> any() {
+                return new LinkedHashMap<String, Object>();
+            }
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesInPath() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped("meta.audit")
+            public String created = "today";
+            @JsonWrapped("meta.audit")
+            public String modified = "tomorrow";
+            @JsonWrapped("meta")
+            public int version = 3;
+            @JsonWrapped("meta.owner")
+            public String owner = "me";
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"meta\":{\"version\":3,\"audit\":{\"created\":\"today\",\"modified\":\"tomorrow\"},\"owner\":{\"owner\":\"me\"}}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_atTypeLevel_wraps_propertiesInPath() throws JsonProcessingException {
+        @JsonWrapped(value = " meta . audit. ", properties = {"created"})
+        class FieldClass {
+            public int x = 42;
+            public String created = "today";
+            @JsonWrapped("meta..audit")
+            public String modified = "tomorrow";
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"meta\":{\"audit\":{\"created\":\"today\",\"modified\":\"tomorrow\"}}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesInPath_withViews() throws JsonProcessingException {
+        class FieldClass {
+            @JsonView(View.class)
+            public int x = 42;
+            @JsonView(View.class)
+            @JsonWrapped("meta.audit")
+            public String created = "today";
+            @JsonView(View2.class)
+            @JsonWrapped("meta.owner")
+            public String owner = "me";
+        }
+        
+        String view = mapper.writerWithView(View.class).writeValueAsString(new FieldClass());
+        String view2 = mapper.writerWithView(View2.class).writeValueAsString(new FieldClass());
+        String noView = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"meta\":{\"audit\":{\"created\":\"today\"}}}", view);
+        assertEquals("{\"meta\":{\"owner\":{\"owner\":\"me\"}}}", view2);
+        assertEquals("{\"x\":42,\"meta\":{\"audit\":{\"created\":\"today\"},\"owner\":{\"owner\":\"me\"}}}", noView);
+    }
+    
+    @Test
+    public void jsonWrapped_virtualPropertyInPath_views() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "meta.audit", views = View.class)
+            public String created = "today";
+        }
+        
+        String view = mapper.writerWithView(View.class).writeValueAsString(new FieldClass());
+        String view2 = mapper.writerWithView(View2.class).writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"meta\":{\"audit\":{\"created\":\"today\"}}}", view);
+        assertEquals("{\"x\":42}", view2);
+    }
+    
+    @Test
+    public void jsonWrapped_omitIfEmpty_omits_virtualPropertiesInPath() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped(value = "meta.audit", omitIfEmpty = true)
+            @JsonInclude(Include.NON_NULL)
+            public String created = null;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_anyGetterInPath() throws JsonProcessingException {
+        class FieldClass {
+            public int x = 42;
+            
+            @JsonAnyGetter
+            @JsonWrapped("meta.any")
+            public Map<String, Object> any() {
+                Map<String, Object> any = new LinkedHashMap<String, Object>();
+                any.put("y", 4711);
+                return any;
+            }
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"x\":42,\"meta\":{\"any\":{\"y\":4711}}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfUnwrappedBean() throws JsonProcessingException {
+        class NestedFieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        class FieldClass {
+            public int z = 13;
+            @JsonUnwrapped(prefix = "nested_")
+            public NestedFieldClass nested = new NestedFieldClass();
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("{\"z\":13,\"nested_x\":42,\"nested_wrapped\":{\"y\":4711}}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfBeanAsArray() throws JsonProcessingException {
+        @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+        class FieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        
+        String result = mapper.writeValueAsString(new FieldClass());
+        
+        assertEquals("[42,{\"y\":4711}]", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfListElements() throws JsonProcessingException {
+        class NestedFieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        class NestedSubClass extends NestedFieldClass {
+            @JsonWrapped("wrapped")
+            public int z = 13;
+        }
+        class FieldClass {
+            public List<NestedFieldClass> items = new ArrayList<NestedFieldClass>();
+        }
+        FieldClass bean = new FieldClass();
+        bean.items.add(new NestedFieldClass());
+        bean.items.add(null);
+        bean.items.add(new NestedSubClass());
+        bean.items.add(new NestedFieldClass());
+        
+        String result = mapper.writeValueAsString(bean);
+        
+        assertEquals("{\"items\":[{\"x\":42,\"wrapped\":{\"y\":4711}},null,{\"x\":42,\"wrapped\":{\"y\":4711,\"z\":13}},{\"x\":42,\"wrapped\":{\"y\":4711}}]}", result);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfListElements_asRootValue() throws JsonProcessingException {
+        class NestedFieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        List<NestedFieldClass> list = new ArrayList<NestedFieldClass>();
+        list.add(new NestedFieldClass());
+        
+        String result = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, NestedFieldClass.class)).writeValueAsString(list);
+        String unwrappedResult = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, NestedFieldClass.class))
+                                       .with(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED).writeValueAsString(list);
+        
+        assertEquals("[{\"x\":42,\"wrapped\":{\"y\":4711}}]", result);
+        assertEquals("{\"x\":42,\"wrapped\":{\"y\":4711}}", unwrappedResult);
+    }
+    
+    @Test
+    public void jsonWrapped_wraps_propertiesOfPolymorphicListElements() throws JsonProcessingException {
+        @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+        @JsonTypeName("nested")
+        class NestedFieldClass {
+            public int x = 42;
+            @JsonWrapped("wrapped")
+            public int y = 4711;
+        }
+        class FieldClass {
+            public List<NestedFieldClass> items = new ArrayList<NestedFieldClass>();
+        }
+        FieldClass bean = new FieldClass();
+        bean.items.add(new NestedFieldClass());
+        
+        String result = mapper.writeValueAsString(bean);
+        
+        assertEquals("{\"items\":[{\"type\":\"nested\",\"x\":42,\"wrapped\":{\"y\":4711}}]}", result);
+    }
 }
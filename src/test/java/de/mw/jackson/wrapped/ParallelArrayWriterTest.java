@@ -0,0 +1,212 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+
+public class ParallelArrayWriterTest {
+
+    private ObjectMapper mapper;
+    private ForkJoinPool pool;
+
+    public static class Person {
+        public int age;
+        @JsonWrapped("name")
+        public String first;
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("address")
+        public String street = "Sunset \"boulevard\" ä";
+
+        Person(int age) {
+            this.age = age;
+            this.first = "Joey" + age;
+        }
+    }
+
+    @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class)
+    public static class Identified {
+        public String name = "shared";
+        @JsonWrapped("meta")
+        public int version = 3;
+    }
+
+    public static class Referencing {
+        public int index;
+        public List<Identified> items;
+
+        Referencing(int index, Identified item) {
+            this.index = index;
+            this.items = Collections.singletonList(item);
+        }
+    }
+
+    public static class Failing {
+        public String getValue() {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_sameBytesAsSequential() throws IOException {
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new Person(i));
+            if (i % 100 == 0) {
+                values.add(null);
+            }
+        }
+
+        for (int chunkSize : new int[] {1, 7, 64, 1000, 5000}) {
+            assertSameBytes(mapper.writer(), chunkSize, values);
+        }
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_emptyList() throws IOException {
+        assertSameBytes(mapper.writer(), 1, Collections.emptyList());
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_prettyPrintedOutput() throws IOException {
+        List<Person> values = new ArrayList<Person>();
+        for (int i = 0; i < 100; i++) {
+            values.add(new Person(i));
+        }
+
+        assertSameBytes(mapper.writerWithDefaultPrettyPrinter(), 10, values);
+        assertSameBytes(mapper.writer().with(SerializationFeature.INDENT_OUTPUT), 10, values);
+        assertSameBytes(mapper.writer().withRootName("persons"), 10, values);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_singleElementArraysUnwrapped() throws IOException {
+        List<Person> values = new ArrayList<Person>();
+        for (int i = 0; i < 11; i++) {
+            values.add(new Person(i));
+        }
+
+        assertSameBytes(mapper.writer().with(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED), 5, values); // last chunk of 1
+        assertSameBytes(mapper.writer().with(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED), 1, values);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_objectIdentity() throws IOException {
+        Identified shared = new Identified();
+        List<Object> identified = new ArrayList<Object>();
+        List<Object> referencing = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            identified.add(i % 10 == 0 ? new Person(i) : shared);
+            referencing.add(new Referencing(i, shared));
+        }
+
+        assertSameBytes(mapper.writer(), 10, identified);
+        assertSameBytes(mapper.writer(), 10, referencing);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_objectIdentity_inLastChunk() throws IOException {
+        Identified shared = new Identified();
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new Person(i));
+        }
+        values.set(995, shared); // second last chunk
+        values.add(shared);
+
+        assertSameBytes(mapper.writer(), 10, values);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_linkedList() throws IOException {
+        List<Object> values = new LinkedList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(new Person(i));
+        }
+
+        assertSameBytes(mapper.writer(), 7, values);
+        values.add(new Identified());
+        assertSameBytes(mapper.writer(), 7, values);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_writes_toChannel() throws IOException {
+        List<Person> values = new ArrayList<Person>();
+        for (int i = 0; i < 100; i++) {
+            values.add(new Person(i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new ParallelArrayWriter(mapper.writer()).withPool(pool).withChunkSize(10).writeValue(Channels.newChannel(out), values);
+
+        assertArrayEquals(mapper.writeValueAsBytes(values), out.toByteArray());
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void jsonWrapped_parallel_fails_withExceptionOfChunk() throws IOException {
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            values.add(i == 50 ? new Failing() : new Person(i));
+        }
+
+        new ParallelArrayWriter(mapper.writer()).withPool(pool).withChunkSize(10).writeValue(new ByteArrayOutputStream(), values);
+    }
+
+    @Test
+    public void jsonWrapped_parallel_keeps_outputOpen() throws IOException {
+        final boolean[] closed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        new ParallelArrayWriter(mapper.writer().with(JsonGenerator.Feature.AUTO_CLOSE_TARGET)).writeValue(out, Collections.singletonList(new Person(1)));
+
+        assertEquals(false, closed[0]);
+    }
+
+    private void assertSameBytes(ObjectWriter writer, int chunkSize, List<?> values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new ParallelArrayWriter(writer).withPool(pool).withChunkSize(chunkSize).writeValue(out, values);
+
+        assertEquals(writer.writeValueAsString(values), new String(out.toByteArray(), "UTF-8"));
+        assertArrayEquals(writer.writeValueAsBytes(values), out.toByteArray());
+    }
+
+}
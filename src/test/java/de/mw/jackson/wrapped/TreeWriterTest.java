@@ -0,0 +1,191 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+
+public class TreeWriterTest {
+
+    private static interface PublicView {}
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = null;
+        @JsonWrapped("person.address")
+        @JsonView(PublicView.class)
+        public String street = "Sunset boulevard";
+        @JsonWrapped("person.address")
+        public List<String> lines = Arrays.asList("a", "b");
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class Numbers {
+        @JsonWrapped("integral")
+        public short s = 1;
+        @JsonWrapped("integral")
+        public int i = 2;
+        @JsonWrapped("integral")
+        public long l = 3L;
+        @JsonWrapped("integral")
+        public BigInteger bi = BigInteger.TEN.pow(30);
+        @JsonWrapped("floating")
+        public float f = 1.5f;
+        @JsonWrapped("floating")
+        public double d = 2.25;
+        @JsonWrapped("floating")
+        public double nan = Double.NaN;
+        @JsonWrapped("floating")
+        public BigDecimal bd = new BigDecimal("1.10");
+        @JsonWrapped(value = "empty", omitIfEmpty = true)
+        public String nothing = null;
+    }
+
+    public static class Others {
+        public boolean flag = true;
+        public byte[] bytes = {1, 2, 3};
+        @JsonWrapped("raw")
+        @JsonRawValue
+        public String raw = "{\"x\":1}";
+        public Person[] people = {new Person(), null};
+        private final Map<String, Object> any = new LinkedHashMap<String, Object>();
+
+        public Others() {
+            any.put("y", 4711);
+        }
+
+        @JsonAnyGetter
+        @JsonWrapped("any")
+        public Map<String, Object> getAny() {
+            return any;
+        }
+    }
+
+    @JsonSerialize(using = ParentSerializer.class)
+    public static class Parent {
+        public Person child = new Person();
+    }
+
+    public static class ParentSerializer extends JsonSerializer<Parent> {
+        @Override
+        public void serialize(Parent value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName("child");
+            gen.writeObject(value.child);
+            gen.writeEndObject();
+        }
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void jsonWrapped_tree_equals_valueToTree() {
+        assertSameTree(mapper, new Person());
+        assertSameTree(mapper, new Numbers());
+        assertSameTree(mapper, new Others());
+        assertSameTree(mapper, Arrays.asList(new Person(), new Numbers()));
+        assertSameTree(mapper, "text");
+        assertSameTree(mapper, 42);
+    }
+
+    @Test
+    public void jsonWrapped_tree_equals_valueToTree_forPojosWrittenBySerializers() {
+        JsonNode result = new TreeWriter(mapper).valueToTree(new Parent());
+
+        assertTrue(result.get("child").isObject());
+        assertSameTree(mapper, new Parent());
+    }
+
+    @Test
+    public void jsonWrapped_tree_equals_valueToTree_withBigDecimalForFloats() {
+        mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+        assertSameTree(mapper, new Numbers());
+    }
+
+    @Test
+    public void jsonWrapped_tree_isNotWrapped_withWrappedRootValue() {
+        mapper.enable(SerializationFeature.WRAP_ROOT_VALUE);
+
+        JsonNode result = new TreeWriter(mapper).valueToTree(new Person());
+
+        assertEquals(mapper.convertValue(new Person(), JsonNode.class), result);
+        assertEquals(mapper.valueToTree(new Person()), new TreeWriter(mapper, mapper.writer()).valueToTree(new Person())); // as given
+    }
+
+    @Test
+    public void jsonWrapped_tree_respects_view() {
+        mapper = JsonMapper.builder().disable(MapperFeature.DEFAULT_VIEW_INCLUSION).addModule(new JsonWrappedModule()).build();
+
+        ObjectNode result = new TreeWriter(mapper, mapper.writerWithView(PublicView.class)).valueToTree(new Person());
+
+        assertEquals("{\"person\":{\"address\":{\"street\":\"Sunset boulevard\"}}}", result.toString());
+    }
+
+    @Test
+    public void jsonWrapped_tree_of_null() {
+        JsonNode result = new TreeWriter(mapper).valueToTree(null);
+
+        assertTrue(result.isNull());
+    }
+
+    private static void assertSameTree(ObjectMapper mapper, Object value) {
+        JsonNode expected = mapper.valueToTree(value);
+
+        JsonNode result = new TreeWriter(mapper).valueToTree(value);
+
+        assertEquals(expected, result);
+        assertEquals(expected.toString(), result.toString());
+        assertSameNodeTypes(expected, result);
+    }
+
+    private static void assertSameNodeTypes(JsonNode expected, JsonNode result) {
+        assertEquals(expected.getClass(), result.getClass());
+        if (expected.isObject()) {
+            for (Map.Entry<String, JsonNode> field : expected.properties()) {
+                assertSameNodeTypes(field.getValue(), result.get(field.getKey()));
+            }
+        } else if (expected.isArray()) {
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameNodeTypes(expected.get(i), result.get(i));
+            }
+        }
+    }
+
+}
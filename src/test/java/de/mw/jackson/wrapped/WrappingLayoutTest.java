@@ -0,0 +1,258 @@
+package de.mw.jackson.wrapped;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+
+public class WrappingLayoutTest {
+
+    private ObjectMapper mapper;
+
+    public static class Person {
+        public int age = 18;
+        @JsonWrapped("name")
+        public String first = "Joey";
+        @JsonWrapped("name")
+        public String last = "Sixpack";
+        @JsonWrapped("meta.audit")
+        public String created = "today";
+        @JsonWrapped("meta")
+        public int version = 3;
+    }
+
+    @Before
+    public void setup() {
+        mapper = new ObjectMapper().registerModule(new JsonWrappedModule());
+    }
+
+    @Test
+    public void wrappingLayout_of_type_writes_mapLikeBean() throws IOException {
+        WrappingLayout layout = WrappingLayout.of(mapper, Person.class);
+
+        assertEquals(mapper.writeValueAsString(new Person()), write(layout, person()));
+        assertEquals("name[first, last],meta[version],meta.audit[created]", layout.toString());
+    }
+
+    @Test
+    public void wrappingLayout_writes_jsonNode() throws IOException {
+        ObjectNode node = mapper.valueToTree(person());
+
+        assertEquals(mapper.writeValueAsString(new Person()), write(WrappingLayout.of(mapper, Person.class), node));
+    }
+
+    @Test
+    public void wrappingLayout_writes_virtualObjects_inOrderOfRules() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first", "last").wrap("address", "street", "city");
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("city", "Heaven");
+        map.put("last", "Sixpack");
+        map.put("age", 18);
+        map.put("street", "Sunset boulevard");
+        map.put("first", "Joey");
+
+        assertEquals("{\"age\":18,\"name\":{\"last\":\"Sixpack\",\"first\":\"Joey\"},\"address\":{\"city\":\"Heaven\",\"street\":\"Sunset boulevard\"}}",
+                write(layout, map));
+    }
+
+    @Test
+    public void wrappingLayout_omits_virtualObjectsWithoutFields() throws IOException {
+        WrappingLayout layout = WrappingLayout.of(mapper, Person.class);
+
+        assertEquals("{\"age\":18}", write(layout, Collections.singletonMap("age", 18)));
+        assertEquals("{\"meta\":{\"audit\":{\"created\":\"today\"}}}", write(layout, Collections.singletonMap("created", "today")));
+        assertEquals("{}", write(layout, Collections.emptyMap()));
+    }
+
+    @Test
+    public void wrappingLayout_writes_valuesAsTheyAre() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("data", "values", "nested", "amount", "count", "ratio", "flag", "none", "bytes");
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("values", Arrays.asList(1, 2, Collections.singletonMap("first", "x")));
+        map.put("count", Long.MAX_VALUE);
+        map.put("nested", Collections.singletonMap("first", Collections.singletonMap("last", null)));
+        map.put("amount", new BigDecimal("1.50"));
+        map.put("ratio", 0.5f);
+        map.put("first", new Person());
+        map.put("flag", true);
+        map.put("none", null);
+        map.put("bytes", new byte[] { 1, 2, 3 });
+
+        assertEquals("{\"first\":" + mapper.writeValueAsString(new Person()) + ","
+                + "\"data\":{\"values\":[1,2,{\"first\":\"x\"}],\"count\":9223372036854775807,\"nested\":{\"first\":{\"last\":null}},"
+                + "\"amount\":1.50,\"ratio\":0.5,\"flag\":true,\"none\":null,\"bytes\":\"AQID\"}}", write(layout, map));
+    }
+
+    @Test
+    public void wrappingLayout_applies_toObjectsOfRootArray() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first");
+        Map<String, Object> map = Collections.<String, Object>singletonMap("first", "Joey");
+
+        assertEquals("[{\"name\":{\"first\":\"Joey\"}},{\"name\":{\"first\":\"Joey\"}}]", write(layout, Arrays.asList(map, map)));
+        assertEquals("[[{\"first\":\"Joey\"}]]", write(layout, Collections.singletonList(Collections.singletonList(map))));
+    }
+
+    @Test
+    public void wrappingLayout_applies_toValuesOfSequence() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first");
+        StringWriter out = new StringWriter();
+
+        SequenceWriter sequence = mapper.writer().writeValues(layout.applyTo(mapper.createGenerator(out)));
+        sequence.write(Collections.singletonMap("first", "Joey"));
+        sequence.write(Collections.singletonMap("first", "Jane"));
+        sequence.close();
+
+        assertEquals("{\"name\":{\"first\":\"Joey\"}} {\"name\":{\"first\":\"Jane\"}}", out.toString());
+    }
+
+    @Test
+    public void wrappingLayout_copies_parser() throws IOException {
+        WrappingLayout layout = WrappingLayout.of(mapper, Person.class);
+        StringWriter out = new StringWriter();
+
+        JsonParser parser = mapper.createParser("{\"age\":18,\"first\":\"Joey\",\"last\":\"Sixpack\",\"created\":\"today\",\"version\":3}");
+        JsonGenerator gen = layout.applyTo(mapper.createGenerator(out));
+        parser.nextToken();
+        gen.copyCurrentStructure(parser);
+        gen.close();
+
+        assertEquals(mapper.writeValueAsString(new Person()), out.toString());
+    }
+
+    @Test
+    public void wrappingLayout_writes_binaryFormats() throws IOException {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        WrappingLayout layout = WrappingLayout.of(mapper, Person.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JsonGenerator gen = layout.applyTo(cbor.createGenerator(out));
+        cbor.writeValue(gen, mapper.valueToTree(person())); // object node writes the number of its fields
+
+        assertEquals(mapper.readTree(mapper.writeValueAsString(new Person())), cbor.readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void wrappingLayout_empty_doesNotWrapGenerator() throws IOException {
+        JsonGenerator gen = mapper.createGenerator(new StringWriter());
+
+        assertSame(gen, WrappingLayout.empty().applyTo(gen));
+        assertSame(WrappingLayout.empty(), WrappingLayout.of(mapper, HashMap.class));
+    }
+
+    @Test
+    public void wrappingLayout_rewraps_field() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first", "last").wrap("short", "first");
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("first", "Joey");
+        map.put("last", "Sixpack");
+
+        assertEquals("{\"name\":{\"last\":\"Sixpack\"},\"short\":{\"first\":\"Joey\"}}", write(layout, map));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrappingLayout_rejects_missingFields() {
+        WrappingLayout.empty().wrap("name");
+    }
+
+    @Test
+    public void wrappingLayout_copy_rewraps_flatJson() throws IOException {
+        WrappingLayout layout = WrappingLayout.of(mapper, Person.class);
+
+        assertEquals(mapper.writeValueAsString(new Person()), copy(layout, "{\"age\":18,\"first\":\"Joey\",\"last\":\"Sixpack\",\"created\":\"today\",\"version\":3}"));
+        assertEquals("{\"age\":18,\"tags\":[{\"first\":1}],\"name\":{\"first\":{\"nested\":[1,2.5,true,null]},\"last\":\"Six\\\"pack\"}}",
+                copy(layout, "{\"age\":18,\"first\":{\"nested\":[1,2.5,true,null]},\"tags\":[{\"first\":1}],\"last\":\"Six\\\"pack\"}"));
+    }
+
+    @Test
+    public void wrappingLayout_copy_rewraps_objectsOfRootArray() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first");
+
+        assertEquals("[{\"name\":{\"first\":\"Joey\"}},1,[{\"first\":\"x\"}],{\"age\":18,\"name\":{\"first\":\"Jane\"}}]",
+                copy(layout, "[{\"first\":\"Joey\"},1,[{\"first\":\"x\"}],{\"first\":\"Jane\",\"age\":18}]"));
+        assertEquals("\"first\"", copy(layout, "\"first\""));
+    }
+
+    @Test
+    public void wrappingLayout_copy_field_leaves_parserAtEndOfValue() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("name", "first");
+        StringWriter out = new StringWriter();
+
+        JsonParser parser = mapper.createParser("{\"person\":{\"first\":\"Joey\"},\"first\":\"Jane\"}");
+        JsonGenerator gen = mapper.createGenerator(out);
+        parser.nextToken();
+        gen.writeStartObject();
+        parser.nextToken();
+        layout.copy(parser, gen);
+        parser.nextToken();
+        gen.copyCurrentStructure(parser);
+        gen.writeEndObject();
+        gen.close();
+
+        assertEquals("{\"person\":{\"name\":{\"first\":\"Joey\"}},\"first\":\"Jane\"}", out.toString());
+    }
+
+    @Test(expected = StreamConstraintsException.class)
+    public void wrappingLayout_copy_limits_bufferedTokens() throws IOException {
+        WrappingLayout layout = WrappingLayout.empty().wrap("data", "values").withMaxBufferedTokens(10);
+
+        assertEquals("[{\"data\":{\"values\":[1,2,3,4,5,6,7,8]}}]", copy(layout, "[{\"values\":[1,2,3,4,5,6,7,8]}]")); // per object
+        copy(layout, "{\"values\":[1,2,3,4,5,6,7,8,9,10]}");
+    }
+
+    @Test
+    public void wrappingLayout_written_readBack() throws IOException {
+        Person read = mapper.readValue(write(WrappingLayout.of(mapper, Person.class), person()), Person.class);
+
+        assertEquals("Joey", read.first);
+        assertEquals("today", read.created);
+        assertEquals(3, read.version);
+    }
+
+    private static Map<String, Object> person() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("age", 18);
+        map.put("first", "Joey");
+        map.put("last", "Sixpack");
+        map.put("created", "today");
+        map.put("version", 3);
+        return map;
+    }
+
+    private String copy(WrappingLayout layout, String json) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonParser parser = mapper.createParser(json);
+        JsonGenerator gen = mapper.createGenerator(out);
+        parser.nextToken();
+        layout.copy(parser, gen);
+        gen.close();
+        return out.toString();
+    }
+
+    private String write(WrappingLayout layout, Object value) throws IOException {
+        StringWriter out = new StringWriter();
+        mapper.writeValue(layout.applyTo(mapper.createGenerator(out)), value);
+        return out.toString();
+    }
+
+}